@@ -0,0 +1,74 @@
+package com.garagetest.config;
+
+import com.garagetest.model.Accessory;
+import com.garagetest.model.Garage;
+import com.garagetest.model.Vehicle;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Local Caffeine regions for Hibernate's second-level and query caches. Every region is created
+ * up front with the same size and time-to-live, so a region missing from this list fails startup
+ * instead of silently growing unbounded.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    static final List<String> REGIONS = List.of(
+            Garage.class.getName(),
+            Garage.class.getName() + ".vehicles",
+            Vehicle.class.getName(),
+            Vehicle.class.getName() + ".accessories",
+            Accessory.class.getName(),
+            RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+            RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME);
+
+    @Value("${entity-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${entity-cache.time-to-live:10m}")
+    private Duration timeToLive;
+
+    // A manager of its own per application context, so contexts in one JVM never share regions
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : REGIONS) {
+            cacheManager.createCache(region, regionConfiguration(region));
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private CaffeineConfiguration<Object, Object> regionConfiguration(String region) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        // Update timestamps must outlive every cached query result that depends on them
+        if (!region.equals(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME)) {
+            configuration.setExpireAfterWrite(OptionalLong.of(timeToLive.toNanos()));
+        }
+        // Hibernate caches disassembled copies already
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -1,20 +1,23 @@
 package com.garagetest.config;
 
 import com.garagetest.messaging.VehicleEvent;
-import org.apache.kafka.clients.admin.AdminClientConfig;
+import com.garagetest.messaging.VehicleEventDeserializer;
+import com.garagetest.messaging.VehicleEventSerializer;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -25,16 +28,44 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
 
-    @Value("${spring.kafka.consumer.group-id:garage-service}")
+    // The read model's group, one per instance; see vehicle.read-model.group-id
+    @Value("${vehicle.read-model.group-id:garage-read-model-local}")
     private String groupId;
 
+    @Value("${spring.kafka.producer.properties.linger.ms:20}")
+    private int lingerMs;
+
+    @Value("${spring.kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${spring.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${vehicle.topic.partitions:6}")
+    private int partitions;
+
+    @Value("${spring.kafka.listener.concurrency:3}")
+    private int concurrency;
+
+    @Value("${spring.kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    // A new consumer group, such as a fresh read model, starts from the beginning of the topic
+    @Value("${spring.kafka.consumer.auto-offset-reset:earliest}")
+    private String autoOffsetReset;
+
+    // json or binary; consumers read both, so this only changes what is produced
+    @Value("${vehicle.events.codec:json}")
+    private String codec;
+
     public static final String VEHICLE_TOPIC = "vehicles";
 
 
+    // Events are keyed by garage id, so each garage's events stay ordered within one partition
     @Bean
     public NewTopic vehicleTopic() {
         return TopicBuilder.name(VEHICLE_TOPIC)
-                .partitions(1)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -45,8 +76,13 @@ public class KafkaConfig {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        // Let the producer fill larger compressed batches instead of sending each record on its own
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        return new DefaultKafkaProducerFactory<>(configProps,
+                new StringSerializer(),
+                new VehicleEventSerializer("binary".equalsIgnoreCase(codec)));
     }
 
     @Bean
@@ -61,20 +97,29 @@ public class KafkaConfig {
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        configProps.put(JsonDeserializer.TYPE_MAPPINGS, "vehicleEvent:com.garagetest.messaging.VehicleEvent");
-        configProps.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, "false");
-        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.garagetest.messaging.VehicleEvent");
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
+        // A record that cannot be decoded reaches the listener as a null event instead of failing
+        // every poll at its offset
         return new DefaultKafkaConsumerFactory<>(configProps,
                 new StringDeserializer(),
-                new JsonDeserializer<>(VehicleEvent.class, false));
+                new ErrorHandlingDeserializer<>(new VehicleEventDeserializer()));
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, VehicleEvent> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, VehicleEvent> kafkaListenerContainerFactory(Environment environment) {
         ConcurrentKafkaListenerContainerFactory<String, VehicleEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // One consumer thread per partition up to the configured concurrency, each handed a whole poll at once
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        // With spring.threads.virtual.enabled on Java 21+, consumers poll on virtual threads like the web requests
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-consumer-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
         return factory;
     }
 }
\ No newline at end of file
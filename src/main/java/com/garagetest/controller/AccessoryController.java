@@ -1,13 +1,22 @@
 package com.garagetest.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.garagetest.dto.AccessoryDTO;
 import com.garagetest.service.AccessoryService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -16,6 +25,8 @@ import java.util.List;
 public class AccessoryController {
     
     private final AccessoryService accessoryService;
+    private final ObjectMapper objectMapper;
+    private final MergePatch mergePatch;
     
     @PostMapping
     public ResponseEntity<AccessoryDTO> createAccessory(@Valid @RequestBody AccessoryDTO accessoryDTO) {
@@ -23,30 +34,67 @@ public class AccessoryController {
         return new ResponseEntity<>(createdAccessory, HttpStatus.CREATED);
     }
     
+    // The two reads below answer If-None-Match with 304 from version lookups, loading nothing
+    
     @GetMapping("/{id}")
-    public ResponseEntity<AccessoryDTO> getAccessoryById(@PathVariable Long id) {
+    public ResponseEntity<AccessoryDTO> getAccessoryById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(ETags.of(accessoryService.getAccessoryVersion(id)))) {
+            return null;
+        }
         AccessoryDTO accessory = accessoryService.getAccessoryById(id);
         return ResponseEntity.ok(accessory);
     }
     
     @GetMapping("/vehicle/{vehicleId}")
-    public ResponseEntity<List<AccessoryDTO>> getAccessoriesByVehicleId(@PathVariable Long vehicleId) {
+    public ResponseEntity<List<AccessoryDTO>> getAccessoriesByVehicleId(@PathVariable Long vehicleId, WebRequest request) {
+        if (request.checkNotModified(ETags.of(accessoryService.getAccessoryVersionsByVehicleId(vehicleId)))) {
+            return null;
+        }
         List<AccessoryDTO> accessories = accessoryService.getAccessoriesByVehicleId(vehicleId);
         return ResponseEntity.ok(accessories);
     }
     
+    // Full list by default, a page when ?page= is given, one accessory per line for application/x-ndjson
     @GetMapping("/type/{type}")
-    public ResponseEntity<List<AccessoryDTO>> getAccessoriesByType(@PathVariable String type) {
+    public ResponseEntity<?> getAccessoriesByType(
+            @PathVariable String type,
+            @RequestParam(required = false) Integer page,
+            @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        if (page != null) {
+            return ResponseEntity.ok(accessoryService.getAccessoriesByType(type, pageable));
+        }
         List<AccessoryDTO> accessories = accessoryService.getAccessoriesByType(type);
         return ResponseEntity.ok(accessories);
     }
     
+    @GetMapping(value = "/type/{type}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamAccessoriesByType(@PathVariable String type, HttpServletResponse response) throws IOException {
+        NdjsonWriter<AccessoryDTO> writer = NdjsonWriter.open(objectMapper, response);
+        accessoryService.streamAccessoriesByType(type, writer);
+        writer.close();
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<AccessoryDTO> updateAccessory(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody AccessoryDTO accessoryDTO) {
+        accessoryDTO.setVersion(ETags.expectedVersion(ifMatch, accessoryDTO.getVersion()));
         AccessoryDTO updatedAccessory = accessoryService.updateAccessory(id, accessoryDTO);
-        return ResponseEntity.ok(updatedAccessory);
+        return ResponseEntity.ok().eTag(ETags.of(updatedAccessory.getVersion())).body(updatedAccessory);
+    }
+    
+    @PatchMapping(value = "/{id}", consumes = MergePatch.MEDIA_TYPE)
+    public ResponseEntity<AccessoryDTO> patchAccessory(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody JsonNode patch) {
+        AccessoryDTO patchedAccessory = accessoryService.patchAccessory(id, current -> {
+            AccessoryDTO accessoryDTO = mergePatch.apply(current, patch);
+            accessoryDTO.setVersion(ETags.expectedVersion(ifMatch, accessoryDTO.getVersion()));
+            return accessoryDTO;
+        });
+        return ResponseEntity.ok().eTag(ETags.of(patchedAccessory.getVersion())).body(patchedAccessory);
     }
     
     @DeleteMapping("/{id}")
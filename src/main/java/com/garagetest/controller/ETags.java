@@ -0,0 +1,43 @@
+package com.garagetest.controller;
+
+import com.garagetest.dto.VersionSummaryDTO;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+// Strong ETags built from entity versions, so a conditional GET can be answered from a version
+// lookup alone. Handlers read the version before the body: a concurrent update can then only
+// leave the ETag older than the body, which costs the client one extra full response, never a
+// wrong 304.
+final class ETags {
+    
+    private ETags() {
+    }
+    
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+    
+    static String of(VersionSummaryDTO versions) {
+        return "\"" + versions.getCount() + "-" + versions.getMaxVersion() + "-"
+                + Long.toHexString(versions.getHashSum()) + "-" + Long.toHexString(versions.getHashSum2()) + "\"";
+    }
+    
+    // Version an update must start from: the single tag of an If-Match header, any version for
+    // "If-Match: *", and the body's version when there is no header
+    static Long expectedVersion(String ifMatch, Long bodyVersion) {
+        if (ifMatch == null) {
+            return bodyVersion;
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Falls through: no version has this tag
+            }
+        }
+        throw new OptimisticLockingFailureException("If-Match " + ifMatch + " matches no version of this resource");
+    }
+}
@@ -1,16 +1,28 @@
 package com.garagetest.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garagetest.dto.GarageCursor;
 import com.garagetest.dto.GarageDTO;
+import com.garagetest.dto.GarageSliceDTO;
 import com.garagetest.service.GarageService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -19,6 +31,8 @@ import java.util.List;
 public class GarageController {
     
     private final GarageService garageService;
+    private final ObjectMapper objectMapper;
+    private final MergePatch mergePatch;
     
     @PostMapping
     public ResponseEntity<GarageDTO> createGarage(@Valid @RequestBody GarageDTO garageDTO) {
@@ -26,41 +40,93 @@ public class GarageController {
         return new ResponseEntity<>(createdGarage, HttpStatus.CREATED);
     }
     
+    // Answers If-None-Match with 304 from the garage's version, without loading the garage
     @GetMapping("/{id}")
-    public ResponseEntity<GarageDTO> getGarageById(@PathVariable Long id) {
+    public ResponseEntity<GarageDTO> getGarageById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(ETags.of(garageService.getGarageVersion(id)))) {
+            return null;
+        }
         GarageDTO garage = garageService.getGarageById(id);
         return ResponseEntity.ok(garage);
     }
     
+    // Passing ?after=<name,id> or ?count=false switches the listings below from offset pages
+    // to keyset slices ordered by name then id, which skip the count query and cost the same
+    // at any depth; the slice's "next" value is the cursor for the following one
+    
     @GetMapping
-    public ResponseEntity<Page<GarageDTO>> getAllGarages(
+    public ResponseEntity<?> getAllGarages(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean count,
             @PageableDefault(size = 10, sort = "name") Pageable pageable) {
+        if (after != null || !count) {
+            Slice<GarageDTO> garages = garageService.getGaragesAfter(GarageCursor.parse(after), pageable.getPageSize());
+            return ResponseEntity.ok(GarageSliceDTO.of(garages));
+        }
         Page<GarageDTO> garages = garageService.getAllGarages(pageable);
         return ResponseEntity.ok(garages);
     }
     
     @GetMapping("/search/name")
-    public ResponseEntity<Page<GarageDTO>> getGaragesByName(
+    public ResponseEntity<?> getGaragesByName(
             @RequestParam String name,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean count,
             @PageableDefault(size = 10) Pageable pageable) {
+        if (after != null || !count) {
+            Slice<GarageDTO> garages = garageService.getGaragesByNameAfter(name, GarageCursor.parse(after), pageable.getPageSize());
+            return ResponseEntity.ok(GarageSliceDTO.of(garages));
+        }
         Page<GarageDTO> garages = garageService.getGaragesByName(name, pageable);
         return ResponseEntity.ok(garages);
     }
     
     @GetMapping("/search/city")
-    public ResponseEntity<Page<GarageDTO>> getGaragesByCity(
+    public ResponseEntity<?> getGaragesByCity(
             @RequestParam String city,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean count,
             @PageableDefault(size = 10) Pageable pageable) {
+        if (after != null || !count) {
+            Slice<GarageDTO> garages = garageService.getGaragesByCityAfter(city, GarageCursor.parse(after), pageable.getPageSize());
+            return ResponseEntity.ok(GarageSliceDTO.of(garages));
+        }
         Page<GarageDTO> garages = garageService.getGaragesByCity(city, pageable);
         return ResponseEntity.ok(garages);
     }
     
+    // Garages open at the given local date and time (now when omitted), ordered by id
+    @GetMapping("/open")
+    public ResponseEntity<Page<GarageDTO>> getGaragesOpenAt(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+            @PageableDefault(size = 20) Pageable pageable) {
+        Page<GarageDTO> garages = garageService.getGaragesOpenAt(at != null ? at : LocalDateTime.now(), pageable);
+        return ResponseEntity.ok(garages);
+    }
+    
+    // Applies only while the garage is at the version named by If-Match or the body (see ETags)
     @PutMapping("/{id}")
     public ResponseEntity<GarageDTO> updateGarage(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody GarageDTO garageDTO) {
+        garageDTO.setVersion(ETags.expectedVersion(ifMatch, garageDTO.getVersion()));
         GarageDTO updatedGarage = garageService.updateGarage(id, garageDTO);
-        return ResponseEntity.ok(updatedGarage);
+        return ResponseEntity.ok().eTag(ETags.of(updatedGarage.getVersion())).body(updatedGarage);
+    }
+    
+    // JSON Merge Patch: only the members sent change, each as a PUT would change it
+    @PatchMapping(value = "/{id}", consumes = MergePatch.MEDIA_TYPE)
+    public ResponseEntity<GarageDTO> patchGarage(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody JsonNode patch) {
+        GarageDTO patchedGarage = garageService.patchGarage(id, current -> {
+            GarageDTO garageDTO = mergePatch.apply(current, patch);
+            garageDTO.setVersion(ETags.expectedVersion(ifMatch, garageDTO.getVersion()));
+            return garageDTO;
+        });
+        return ResponseEntity.ok().eTag(ETags.of(patchedGarage.getVersion())).body(patchedGarage);
     }
     
     @DeleteMapping("/{id}")
@@ -69,21 +135,63 @@ public class GarageController {
         return ResponseEntity.noContent().build();
     }
     
+    // The searches below return the full list by default, a page when ?page= is given, and
+    // stream one garage per line when the client accepts application/x-ndjson
+    
     @GetMapping("/search/vehicle-brand")
-    public ResponseEntity<List<GarageDTO>> getGaragesByVehicleBrand(@RequestParam String brand) {
+    public ResponseEntity<?> getGaragesByVehicleBrand(
+            @RequestParam String brand,
+            @RequestParam(required = false) Integer page,
+            @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        if (page != null) {
+            return ResponseEntity.ok(garageService.getGaragesByVehicleBrand(brand, pageable));
+        }
         List<GarageDTO> garages = garageService.getGaragesByVehicleBrand(brand);
         return ResponseEntity.ok(garages);
     }
     
+    @GetMapping(value = "/search/vehicle-brand", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamGaragesByVehicleBrand(@RequestParam String brand, HttpServletResponse response) throws IOException {
+        NdjsonWriter<GarageDTO> writer = NdjsonWriter.open(objectMapper, response);
+        garageService.streamGaragesByVehicleBrand(brand, writer);
+        writer.close();
+    }
+    
     @GetMapping("/search/vehicle-model")
-    public ResponseEntity<List<GarageDTO>> getGaragesByVehicleModel(@RequestParam String model) {
+    public ResponseEntity<?> getGaragesByVehicleModel(
+            @RequestParam String model,
+            @RequestParam(required = false) Integer page,
+            @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        if (page != null) {
+            return ResponseEntity.ok(garageService.getGaragesByVehicleModel(model, pageable));
+        }
         List<GarageDTO> garages = garageService.getGaragesByVehicleModel(model);
         return ResponseEntity.ok(garages);
     }
     
+    @GetMapping(value = "/search/vehicle-model", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamGaragesByVehicleModel(@RequestParam String model, HttpServletResponse response) throws IOException {
+        NdjsonWriter<GarageDTO> writer = NdjsonWriter.open(objectMapper, response);
+        garageService.streamGaragesByVehicleModel(model, writer);
+        writer.close();
+    }
+    
     @GetMapping("/search/accessory-type")
-    public ResponseEntity<List<GarageDTO>> getGaragesByAccessoryType(@RequestParam String type) {
+    public ResponseEntity<?> getGaragesByAccessoryType(
+            @RequestParam String type,
+            @RequestParam(required = false) Integer page,
+            @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        if (page != null) {
+            return ResponseEntity.ok(garageService.getGaragesByAccessoryType(type, pageable));
+        }
         List<GarageDTO> garages = garageService.getGaragesByAccessoryType(type);
         return ResponseEntity.ok(garages);
     }
+    
+    @GetMapping(value = "/search/accessory-type", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamGaragesByAccessoryType(@RequestParam String type, HttpServletResponse response) throws IOException {
+        NdjsonWriter<GarageDTO> writer = NdjsonWriter.open(objectMapper, response);
+        garageService.streamGaragesByAccessoryType(type, writer);
+        writer.close();
+    }
 }
\ No newline at end of file
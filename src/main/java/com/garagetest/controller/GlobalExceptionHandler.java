@@ -0,0 +1,54 @@
+package com.garagetest.controller;
+
+import com.garagetest.exception.GarageCapacityExceededException;
+import com.garagetest.exception.InvalidRequestException;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.WebRequest;
+
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+    
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<ProblemDetail> handleNotFound(EntityNotFoundException ex) {
+        return problem(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+    
+    // A garage at full capacity; other IllegalStateExceptions are bugs and stay 500s
+    @ExceptionHandler(GarageCapacityExceededException.class)
+    public ResponseEntity<ProblemDetail> handleConflict(GarageCapacityExceededException ex) {
+        return problem(HttpStatus.CONFLICT, ex.getMessage());
+    }
+    
+    // A stale version on update: 412 when the client made the update conditional with If-Match,
+    // 409 when the version came in the body
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemDetail> handleStaleVersion(OptimisticLockingFailureException ex, WebRequest request) {
+        HttpStatus status = request.getHeader(HttpHeaders.IF_MATCH) != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+        return problem(status, ex.getMessage());
+    }
+    
+    // Malformed request values such as a bad paging cursor; other IllegalArgumentExceptions are
+    // bugs and stay 500s, so their messages are not echoed to clients
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ProblemDetail> handleBadRequest(InvalidRequestException ex) {
+        return problem(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+    
+    // A patched DTO that no longer passes validation
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<ProblemDetail> handleInvalid(ConstraintViolationException ex) {
+        return problem(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+    
+    private ResponseEntity<ProblemDetail> problem(HttpStatus status, String detail) {
+        return ResponseEntity.status(status).body(ProblemDetail.forStatusAndDetail(status, detail));
+    }
+}
@@ -0,0 +1,88 @@
+package com.garagetest.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.garagetest.exception.InvalidRequestException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Set;
+
+// Applies a JSON Merge Patch (RFC 7396) to a DTO: members in the patch replace the DTO's fields,
+// null clears one, and a nested object such as openingHours merges into the current value.
+// Fields the patch leaves out keep the very same value objects, so the entity sees them unchanged.
+@Component
+@RequiredArgsConstructor
+class MergePatch {
+    
+    static final String MEDIA_TYPE = "application/merge-patch+json";
+    
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    
+    // The patched DTO, validated like a PUT body
+    <T> T apply(T target, JsonNode patch) {
+        if (!patch.isObject()) {
+            throw new InvalidRequestException("A merge patch must be a JSON object");
+        }
+        ObjectNode changes = objectMapper.createObjectNode();
+        JsonNode current = null;
+        for (Map.Entry<String, JsonNode> field : patch.properties()) {
+            if (field.getValue().isObject()) {
+                // Only nested merges need the current value as a tree
+                if (current == null) {
+                    current = toTree(target);
+                }
+                changes.set(field.getKey(), merge(current.get(field.getKey()), field.getValue()));
+            } else {
+                changes.set(field.getKey(), field.getValue());
+            }
+        }
+        T patched;
+        try {
+            patched = objectMapper.readerForUpdating(target).readValue(changes);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRequestException("Invalid merge patch: " + e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(patched);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return patched;
+    }
+    
+    private static JsonNode merge(JsonNode target, JsonNode patch) {
+        if (!patch.isObject()) {
+            return patch;
+        }
+        ObjectNode result = target != null && target.isObject() ? ((ObjectNode) target).deepCopy() : JsonNodeFactory.instance.objectNode();
+        for (Map.Entry<String, JsonNode> field : patch.properties()) {
+            if (field.getValue().isNull()) {
+                result.remove(field.getKey());
+            } else {
+                result.set(field.getKey(), merge(result.get(field.getKey()), field.getValue()));
+            }
+        }
+        return result;
+    }
+    
+    // Through text, since raw JSON values such as opening hours do not become tree nodes otherwise
+    private JsonNode toTree(Object value) {
+        try {
+            return objectMapper.readTree(objectMapper.writeValueAsString(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
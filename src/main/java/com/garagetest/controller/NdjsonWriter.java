@@ -0,0 +1,49 @@
+package com.garagetest.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+// Writes each row it is handed as one JSON line straight to the response, so a streamed
+// search never holds more than one row; the client sees output every FLUSH_EVERY rows
+final class NdjsonWriter<T> implements Consumer<T> {
+    
+    private static final int FLUSH_EVERY = 500;
+    
+    private final ObjectMapper objectMapper;
+    private final OutputStream out;
+    private int unflushed;
+    
+    private NdjsonWriter(ObjectMapper objectMapper, OutputStream out) {
+        this.objectMapper = objectMapper;
+        this.out = out;
+    }
+    
+    static <T> NdjsonWriter<T> open(ObjectMapper objectMapper, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        return new NdjsonWriter<>(objectMapper, response.getOutputStream());
+    }
+    
+    @Override
+    public void accept(T row) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(row));
+            out.write('\n');
+            if (++unflushed == FLUSH_EVERY) {
+                out.flush();
+                unflushed = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    void close() throws IOException {
+        out.flush();
+    }
+}
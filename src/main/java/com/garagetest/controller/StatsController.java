@@ -0,0 +1,50 @@
+package com.garagetest.controller;
+
+import com.garagetest.dto.GarageStatsDTO;
+import com.garagetest.dto.StatsCountDTO;
+import com.garagetest.dto.VehicleStatsDTO;
+import com.garagetest.service.StatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+public class StatsController {
+    
+    private final StatsService statsService;
+    
+    @GetMapping("/vehicles/by-brand")
+    public ResponseEntity<List<StatsCountDTO>> countVehiclesByBrand() {
+        return ResponseEntity.ok(statsService.countVehiclesByBrand());
+    }
+    
+    @GetMapping("/vehicles/by-fuel-type")
+    public ResponseEntity<List<StatsCountDTO>> countVehiclesByFuelType() {
+        return ResponseEntity.ok(statsService.countVehiclesByFuelType());
+    }
+    
+    @GetMapping("/vehicles/{id}")
+    public ResponseEntity<VehicleStatsDTO> getVehicleStats(@PathVariable Long id) {
+        return ResponseEntity.ok(statsService.getVehicleStats(id));
+    }
+    
+    @GetMapping("/garages")
+    public ResponseEntity<Page<GarageStatsDTO>> getGarageStats(@PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        return ResponseEntity.ok(statsService.getGarageStats(pageable));
+    }
+    
+    @GetMapping("/garages/{id}")
+    public ResponseEntity<GarageStatsDTO> getGarageStats(@PathVariable Long id) {
+        return ResponseEntity.ok(statsService.getGarageStats(id));
+    }
+}
@@ -1,13 +1,29 @@
 package com.garagetest.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garagetest.dto.VehicleBatchResponseDTO;
+import com.garagetest.dto.VehicleBatchResultDTO;
 import com.garagetest.dto.VehicleDTO;
 import com.garagetest.service.VehicleService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -15,7 +31,12 @@ import java.util.List;
 @RequiredArgsConstructor
 public class VehicleController {
     
+    // Rows per transaction when streaming an NDJSON import
+    private static final int IMPORT_CHUNK_SIZE = VehicleService.MAX_BATCH;
+    
     private final VehicleService vehicleService;
+    private final ObjectMapper objectMapper;
+    private final MergePatch mergePatch;
     
     @PostMapping
     public ResponseEntity<VehicleDTO> createVehicle(@Valid @RequestBody VehicleDTO vehicleDTO) {
@@ -23,30 +44,109 @@ public class VehicleController {
         return new ResponseEntity<>(createdVehicle, HttpStatus.CREATED);
     }
     
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<VehicleBatchResponseDTO> createVehicles(@RequestBody List<VehicleDTO> vehicleDTOs) {
+        List<VehicleBatchResultDTO> results = vehicleService.createVehicles(vehicleDTOs);
+        return ResponseEntity.ok(VehicleBatchResponseDTO.of(results));
+    }
+    
+    // Streaming import: one vehicle per line in, one result per line out, committed in chunks
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importVehicles(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        BufferedReader reader = request.getReader();
+        OutputStream out = response.getOutputStream();
+        
+        List<VehicleDTO> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        int chunkStart = 0;
+        int index = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                chunk.add(objectMapper.readValue(line, VehicleDTO.class));
+            } catch (JsonProcessingException e) {
+                // Keep output in row order: settle the pending chunk before reporting this row
+                writeResults(out, chunk, chunkStart);
+                chunk.clear();
+                writeResult(out, VehicleBatchResultDTO.rejected(index, "Malformed JSON: " + e.getOriginalMessage()));
+                chunkStart = index + 1;
+            }
+            index++;
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                writeResults(out, chunk, chunkStart);
+                chunk.clear();
+                chunkStart = index;
+            }
+        }
+        writeResults(out, chunk, chunkStart);
+        out.flush();
+    }
+    
+    // The two reads below answer If-None-Match with 304 from version lookups, loading nothing
+    
     @GetMapping("/{id}")
-    public ResponseEntity<VehicleDTO> getVehicleById(@PathVariable Long id) {
+    public ResponseEntity<VehicleDTO> getVehicleById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(ETags.of(vehicleService.getVehicleVersion(id)))) {
+            return null;
+        }
         VehicleDTO vehicle = vehicleService.getVehicleById(id);
         return ResponseEntity.ok(vehicle);
     }
     
     @GetMapping("/garage/{garageId}")
-    public ResponseEntity<List<VehicleDTO>> getVehiclesByGarageId(@PathVariable Long garageId) {
+    public ResponseEntity<List<VehicleDTO>> getVehiclesByGarageId(@PathVariable Long garageId, WebRequest request) {
+        if (request.checkNotModified(ETags.of(vehicleService.getVehicleVersionsByGarageId(garageId)))) {
+            return null;
+        }
         List<VehicleDTO> vehicles = vehicleService.getVehiclesByGarageId(garageId);
         return ResponseEntity.ok(vehicles);
     }
     
+    // Full list by default, a page when ?page= is given, one vehicle per line for application/x-ndjson
     @GetMapping("/model/{model}")
-    public ResponseEntity<List<VehicleDTO>> getVehiclesByModel(@PathVariable String model) {
+    public ResponseEntity<?> getVehiclesByModel(
+            @PathVariable String model,
+            @RequestParam(required = false) Integer page,
+            @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        if (page != null) {
+            return ResponseEntity.ok(vehicleService.getVehiclesByModel(model, pageable));
+        }
         List<VehicleDTO> vehicles = vehicleService.getVehiclesByModel(model);
         return ResponseEntity.ok(vehicles);
     }
     
+    @GetMapping(value = "/model/{model}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamVehiclesByModel(@PathVariable String model, HttpServletResponse response) throws IOException {
+        NdjsonWriter<VehicleDTO> writer = NdjsonWriter.open(objectMapper, response);
+        vehicleService.streamVehiclesByModel(model, writer);
+        writer.close();
+    }
+    
+    // Conditional on If-Match or the body's version, like the garage update
     @PutMapping("/{id}")
     public ResponseEntity<VehicleDTO> updateVehicle(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody VehicleDTO vehicleDTO) {
+        vehicleDTO.setVersion(ETags.expectedVersion(ifMatch, vehicleDTO.getVersion()));
         VehicleDTO updatedVehicle = vehicleService.updateVehicle(id, vehicleDTO);
-        return ResponseEntity.ok(updatedVehicle);
+        return ResponseEntity.ok().eTag(ETags.of(updatedVehicle.getVersion())).body(updatedVehicle);
+    }
+    
+    @PatchMapping(value = "/{id}", consumes = MergePatch.MEDIA_TYPE)
+    public ResponseEntity<VehicleDTO> patchVehicle(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody JsonNode patch) {
+        VehicleDTO patchedVehicle = vehicleService.patchVehicle(id, current -> {
+            VehicleDTO vehicleDTO = mergePatch.apply(current, patch);
+            vehicleDTO.setVersion(ETags.expectedVersion(ifMatch, vehicleDTO.getVersion()));
+            return vehicleDTO;
+        });
+        return ResponseEntity.ok().eTag(ETags.of(patchedVehicle.getVersion())).body(patchedVehicle);
     }
     
     @DeleteMapping("/{id}")
@@ -54,4 +154,27 @@ public class VehicleController {
         vehicleService.deleteVehicle(id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+    
+    // Batch delete, all or nothing: DELETE /api/vehicles?ids=1,2,3
+    @DeleteMapping(params = "ids")
+    public ResponseEntity<Void> deleteVehicles(@RequestParam List<Long> ids) {
+        vehicleService.deleteVehicles(ids);
+        return ResponseEntity.noContent().build();
+    }
+    
+    private void writeResults(OutputStream out, List<VehicleDTO> chunk, int chunkStart) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (VehicleBatchResultDTO result : vehicleService.createVehicles(chunk)) {
+            result.setIndex(chunkStart + result.getIndex());
+            writeResult(out, result);
+        }
+        out.flush();
+    }
+    
+    private void writeResult(OutputStream out, VehicleBatchResultDTO result) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write('\n');
+    }
+}
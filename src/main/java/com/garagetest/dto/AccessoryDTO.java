@@ -29,4 +29,11 @@ public class AccessoryDTO {
     private String type;
     
     private Long vehicleId;
+    
+    // Version the accessory had when read; on update, must still be current unless null (see If-Match)
+    private Long version;
+    
+    public AccessoryDTO(Long id, String name, String description, BigDecimal price, String type, Long vehicleId) {
+        this(id, name, description, price, type, vehicleId, null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.garagetest.dto;
+
+import com.garagetest.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position in the garage listing ordered by name then id, written as {@code <name>,<id>}.
+ * The id follows the last comma, so names may contain commas themselves.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GarageCursor {
+    
+    // Sorts before every garage, since garage names are never blank
+    public static final GarageCursor START = new GarageCursor("", 0L);
+    
+    private String name;
+    
+    private Long id;
+    
+    public static GarageCursor parse(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return START;
+        }
+        int separator = cursor.lastIndexOf(',');
+        if (separator < 0) {
+            throw new InvalidCursorException("Cursor must be <name>,<id>");
+        }
+        try {
+            return new GarageCursor(cursor.substring(0, separator), Long.parseLong(cursor.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Cursor must be <name>,<id>");
+        }
+    }
+    
+    public static GarageCursor of(GarageDTO garage) {
+        return new GarageCursor(garage.getName(), garage.getId());
+    }
+    
+    public String encode() {
+        return name + "," + id;
+    }
+}
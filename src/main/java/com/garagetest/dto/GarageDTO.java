@@ -1,6 +1,6 @@
 package com.garagetest.dto;
 
-import com.garagetest.model.OpeningTime;
+import com.garagetest.model.OpeningHours;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -8,11 +8,6 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.time.DayOfWeek;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,5 +28,8 @@ public class GarageDTO {
     private String email;
     
     @NotNull(message = "Opening hours are required")
-    private Map<DayOfWeek, List<OpeningTime>> openingHours = new HashMap<>();
+    private OpeningHours openingHours = OpeningHours.EMPTY;
+    
+    // Version the garage had when read; on update, must still be current unless null (see If-Match)
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.garagetest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GarageSliceDTO {
+    private List<GarageDTO> content;
+    
+    private int size;
+    
+    private boolean hasNext;
+    
+    // Value for ?after= to fetch the following slice, null on the last one
+    private String next;
+    
+    public static GarageSliceDTO of(Slice<GarageDTO> slice) {
+        List<GarageDTO> content = slice.getContent();
+        String next = slice.hasNext() ? GarageCursor.of(content.get(content.size() - 1)).encode() : null;
+        return new GarageSliceDTO(content, slice.getSize(), slice.hasNext(), next);
+    }
+}
@@ -0,0 +1,24 @@
+package com.garagetest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GarageStatsDTO {
+    
+    private Long garageId;
+    
+    private String name;
+    
+    private int vehicleCount;
+    
+    private int accessoryCount;
+    
+    // Sum of the prices of the accessories on the garage's vehicles
+    private BigDecimal accessoryValue;
+}
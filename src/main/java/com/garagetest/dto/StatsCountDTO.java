@@ -0,0 +1,19 @@
+package com.garagetest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of vehicles sharing one value, such as a brand; values are compared ignoring case
+ * and reported in lowercase.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsCountDTO {
+    
+    private String key;
+    
+    private long count;
+}
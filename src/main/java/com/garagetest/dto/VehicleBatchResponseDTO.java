@@ -0,0 +1,25 @@
+package com.garagetest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleBatchResponseDTO {
+    private long created;
+    
+    private long rejected;
+    
+    private List<VehicleBatchResultDTO> results;
+    
+    public static VehicleBatchResponseDTO of(List<VehicleBatchResultDTO> results) {
+        long created = results.stream()
+                .filter(result -> result.getStatus() == VehicleBatchResultDTO.Status.CREATED)
+                .count();
+        return new VehicleBatchResponseDTO(created, results.size() - created, results);
+    }
+}
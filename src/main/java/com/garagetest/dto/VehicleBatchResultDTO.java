@@ -0,0 +1,33 @@
+package com.garagetest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleBatchResultDTO {
+    
+    public enum Status {
+        CREATED,
+        REJECTED
+    }
+    
+    // Position of the row in the submitted batch
+    private int index;
+    
+    private Status status;
+    
+    private VehicleDTO vehicle;
+    
+    private String error;
+    
+    public static VehicleBatchResultDTO created(int index, VehicleDTO vehicle) {
+        return new VehicleBatchResultDTO(index, Status.CREATED, vehicle, null);
+    }
+    
+    public static VehicleBatchResultDTO rejected(int index, String error) {
+        return new VehicleBatchResultDTO(index, Status.REJECTED, null, error);
+    }
+}
@@ -3,6 +3,7 @@ package com.garagetest.dto;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Past;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,17 +17,28 @@ import java.util.Date;
 public class VehicleDTO {
     private Long id;
     
+    // Text fields are capped at their column length, which also bounds the outbox payload
     @NotBlank(message = "Brand is required")
+    @Size(max = 255, message = "Brand must be at most 255 characters")
     private String brand;
     
     @NotBlank(message = "Model is required")
+    @Size(max = 255, message = "Model must be at most 255 characters")
     private String model;
     
     @NotNull(message = "Manufacturing year is required")
     private Integer manufacturingYear;
     
     @NotBlank(message = "Fuel type is required")
+    @Size(max = 255, message = "Fuel type must be at most 255 characters")
     private String fuelType;
     
     private Long garageId;
+    
+    // Version the vehicle had when read; on update, must still be current unless null (see If-Match)
+    private Long version;
+    
+    public VehicleDTO(Long id, String brand, String model, Integer manufacturingYear, String fuelType, Long garageId) {
+        this(id, brand, model, manufacturingYear, fuelType, garageId, null);
+    }
 }
\ No newline at end of file
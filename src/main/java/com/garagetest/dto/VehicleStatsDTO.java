@@ -0,0 +1,22 @@
+package com.garagetest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleStatsDTO {
+    
+    private Long vehicleId;
+    
+    private Long garageId;
+    
+    private int accessoryCount;
+    
+    // Sum of the prices of the vehicle's accessories
+    private BigDecimal accessoryValue;
+}
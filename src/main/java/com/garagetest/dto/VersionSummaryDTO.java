@@ -0,0 +1,34 @@
+package com.garagetest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Aggregates over the versions of a collection's members: their count, the highest version and the
+// sums of two hashes of each member's (id, version) pair. Adding, removing or updating a member
+// changes the sums unless both hashes happen to collide, which no simple rearrangement of ids and
+// versions produces, as it would for plain sums of ids and versions.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionSummaryDTO {
+    
+    // JPQL select list over members aliased m. Each hash squares an affine map of the pair modulo the
+    // prime 2^31 - 1, with its own constants. The modulus is cast so the database computes in 64 bits,
+    // where every intermediate stays below 2^63.
+    private static final String PRIME = "CAST(2147483647 AS Long)";
+    private static final String AFFINE = "MOD(MOD(m.id, " + PRIME + ") * 1103515 + MOD(m.version, " + PRIME + ") * 40503 + 12345, " + PRIME + ")";
+    private static final String AFFINE2 = "MOD(MOD(m.id, " + PRIME + ") * 48271 + MOD(m.version, " + PRIME + ") * 1664525 + 1013904223, " + PRIME + ")";
+    
+    public static final String SELECT = "SELECT new com.garagetest.dto.VersionSummaryDTO(COUNT(m), COALESCE(MAX(m.version), 0), "
+            + "COALESCE(SUM(MOD(" + AFFINE + " * " + AFFINE + ", " + PRIME + ")), 0), "
+            + "COALESCE(SUM(MOD(" + AFFINE2 + " * " + AFFINE2 + ", " + PRIME + ")), 0)) ";
+    
+    private long count;
+    
+    private long maxVersion;
+    
+    private long hashSum;
+    
+    private long hashSum2;
+}
@@ -0,0 +1,17 @@
+package com.garagetest.exception;
+
+import com.garagetest.model.Garage;
+
+// A vehicle refused because its garage already holds Garage.MAX_VEHICLES; answered with 409
+public class GarageCapacityExceededException extends RuntimeException {
+    
+    public static final String MESSAGE = "Garage has reached maximum capacity of " + Garage.MAX_VEHICLES + " vehicles";
+    
+    public GarageCapacityExceededException() {
+        super(MESSAGE);
+    }
+    
+    public GarageCapacityExceededException(String message) {
+        super(message);
+    }
+}
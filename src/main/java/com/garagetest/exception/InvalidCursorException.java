@@ -0,0 +1,9 @@
+package com.garagetest.exception;
+
+// A keyset paging cursor that does not have the <name>,<id> form
+public class InvalidCursorException extends InvalidRequestException {
+    
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.garagetest.exception;
+
+/**
+ * A request value the API refuses, answered with 400. Only this exception and its subclasses are
+ * mapped to 400, so the message must be written for the client.
+ */
+public class InvalidRequestException extends RuntimeException {
+    
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+    
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
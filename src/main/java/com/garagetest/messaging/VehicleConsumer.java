@@ -1,22 +1,82 @@
 package com.garagetest.messaging;
 
 import com.garagetest.config.KafkaConfig;
+import com.garagetest.service.VehicleReadModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.AbstractConsumerSeekAware;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Component
 @Slf4j
-public class VehicleConsumer {
+public class VehicleConsumer extends AbstractConsumerSeekAware {
+    
+    private final VehicleReadModel readModel;
+    // Drops redelivered and out-of-order events without a database lookup
+    private final VehicleVersionTracker versions;
+    private final Counter skippedEvents;
+    
+    // Partitions replayed from offset zero since startup; later rebalances resume from committed offsets
+    private final Set<TopicPartition> rebuilt = ConcurrentHashMap.newKeySet();
+    
+    public VehicleConsumer(VehicleReadModel readModel, MeterRegistry meterRegistry,
+                           @Value("${vehicle.consumer.dedup-capacity:262144}") int dedupCapacity) {
+        this.readModel = readModel;
+        this.versions = new VehicleVersionTracker(dedupCapacity);
+        this.skippedEvents = meterRegistry.counter("vehicle.events.skipped", "reason", "stale");
+    }
     
+    // Each instance needs every partition to build its read model, so it consumes in its own group
     @KafkaListener(topics = KafkaConfig.VEHICLE_TOPIC, 
-                  groupId = "${spring.kafka.consumer.group-id:garage-service}",
+                  groupId = "${vehicle.read-model.group-id:garage-read-model-local}",
                   containerFactory = "kafkaListenerContainerFactory")
-    public void consumeVehicleEvent(@Payload VehicleEvent event) {
-        log.info("Received vehicle event: {} for vehicle ID: {}", 
-                event.getEventType(), 
-                event.getVehicle().getId());
+    public void consumeVehicleEvents(@Payload List<VehicleEvent> events) {
+        // One INFO line per batch; each event is logged at DEBUG
+        log.info("Received {} vehicle events", events.size());
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i) == null) {
+                // Left by ErrorHandlingDeserializer; the error handler logs and skips it without retrying
+                throw new BatchListenerFailedException("Unreadable vehicle event",
+                        new DeserializationException("Unreadable vehicle event", null, false, null), i);
+            }
+            try {
+                consumeVehicleEvent(events.get(i));
+            } catch (Exception e) {
+                // Lets the error handler commit the events before this one and retry from here
+                throw new BatchListenerFailedException("Failed to process vehicle event", e, i);
+            }
+        }
+    }
+    
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        super.onPartitionsAssigned(assignments, callback);
+        List<TopicPartition> replay = assignments.keySet().stream().filter(rebuilt::add).toList();
+        if (!replay.isEmpty()) {
+            log.info("Rebuilding vehicle read model from offset zero of {}", replay);
+            callback.seekToBeginning(replay);
+        }
+    }
+    
+    public void consumeVehicleEvent(VehicleEvent event) {
+        if (isStale(event)) {
+            log.debug("Skipping vehicle event {} version {} for vehicle ID: {}, already applied a later one",
+                    event.getEventType(), event.getVersion(), event.getVehicle().getId());
+            skippedEvents.increment();
+            return;
+        }
         
         switch (event.getEventType()) {
             case CREATED:
@@ -33,41 +93,28 @@ public class VehicleConsumer {
         }
     }
     
+    // Unversioned events predate versioning and are always applied
+    private boolean isStale(VehicleEvent event) {
+        Long vehicleId = event.getVehicle().getId();
+        return vehicleId != null && event.getVersion() != null
+                && !versions.advance(vehicleId, event.getVersion());
+    }
+    
     private void handleVehicleCreated(VehicleEvent event) {
-        log.info("Processing vehicle created event for vehicle: {} - {}", 
-                event.getVehicle().getId(),
-                event.getVehicle().getBrand() + " " + event.getVehicle().getModel());
-
-        //print a big message to indicate a vehicle was created
-        log.info("**************************************************");
-        log.info("**************************************************");
-        log.info("**************************************************");
-        log.info("**************************************************");
-        log.info("********** VEHICLE CREATED EVENT **********");
-        log.info("********** VEHICLE CREATED EVENT **********");
-        log.info("********** VEHICLE CREATED EVENT **********");
-        log.info("********** VEHICLE CREATED EVENT **********");
-        log.info("**************************************************");
-        log.info("**************************************************");
-        log.info("**************************************************");
-        log.info("**************************************************");
-        // Here you would implement any business logic needed when a vehicle is created
-        // For example, sending notifications, updating statistics, etc.
+        log.debug("Processing vehicle created event for vehicle: {} - {} {}",
+                event.getVehicle().getId(), event.getVehicle().getBrand(), event.getVehicle().getModel());
+        readModel.apply(event);
     }
     
     private void handleVehicleUpdated(VehicleEvent event) {
-        log.info("Processing vehicle updated event for vehicle: {} - {}", 
-                event.getVehicle().getId(),
-                event.getVehicle().getBrand() + " " + event.getVehicle().getModel());
-        
-        // Here you would implement any business logic needed when a vehicle is updated
+        log.debug("Processing vehicle updated event for vehicle: {} - {} {}",
+                event.getVehicle().getId(), event.getVehicle().getBrand(), event.getVehicle().getModel());
+        readModel.apply(event);
     }
     
     private void handleVehicleDeleted(VehicleEvent event) {
-        log.info("Processing vehicle deleted event for vehicle: {} - {}", 
-                event.getVehicle().getId(),
-                event.getVehicle().getBrand() + " " + event.getVehicle().getModel());
-        
-        // Here you would implement any business logic needed when a vehicle is deleted
+        log.debug("Processing vehicle deleted event for vehicle: {} - {} {}",
+                event.getVehicle().getId(), event.getVehicle().getBrand(), event.getVehicle().getModel());
+        readModel.apply(event);
     }
-}
\ No newline at end of file
+}
@@ -21,16 +21,30 @@ public class VehicleEvent {
     private EventType eventType;
     private VehicleDTO vehicle;
     private LocalDateTime timestamp;
+    // Increases with every change to the vehicle; null for events from before versioning
+    private Long version;
     
     public static VehicleEvent vehicleCreated(VehicleDTO vehicle) {
-        return new VehicleEvent(EventType.CREATED, vehicle, LocalDateTime.now());
+        return vehicleCreated(vehicle, null);
     }
     
     public static VehicleEvent vehicleUpdated(VehicleDTO vehicle) {
-        return new VehicleEvent(EventType.UPDATED, vehicle, LocalDateTime.now());
+        return vehicleUpdated(vehicle, null);
     }
     
     public static VehicleEvent vehicleDeleted(VehicleDTO vehicle) {
-        return new VehicleEvent(EventType.DELETED, vehicle, LocalDateTime.now());
+        return vehicleDeleted(vehicle, null);
+    }
+    
+    public static VehicleEvent vehicleCreated(VehicleDTO vehicle, Long version) {
+        return new VehicleEvent(EventType.CREATED, vehicle, LocalDateTime.now(), version);
+    }
+    
+    public static VehicleEvent vehicleUpdated(VehicleDTO vehicle, Long version) {
+        return new VehicleEvent(EventType.UPDATED, vehicle, LocalDateTime.now(), version);
+    }
+    
+    public static VehicleEvent vehicleDeleted(VehicleDTO vehicle, Long version) {
+        return new VehicleEvent(EventType.DELETED, vehicle, LocalDateTime.now(), version);
     }
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.garagetest.messaging;
+
+import com.garagetest.dto.VehicleDTO;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary layout for {@link VehicleEvent}.
+ * <pre>
+ * byte   magic (0x00, never the first byte of a JSON event)
+ * byte   version
+ * byte   event type ordinal, -1 for null
+ * byte   presence flags
+ * long   timestamp epoch seconds (UTC)   int  timestamp nanos
+ * long   vehicle id                      long garage id
+ * int    manufacturing year
+ * short  length + UTF-8 bytes for brand, model and fuel type, length -1 for null
+ * long   event version (version 2 only)
+ * </pre>
+ * Absent numeric fields are written as zero and flagged, keeping the layout fixed.
+ * Version 1 events, written before events were versioned, still decode.
+ */
+public final class VehicleEventCodec {
+    
+    static final byte MAGIC = 0;
+    static final byte VERSION_1 = 1;
+    static final byte VERSION_2 = 2;
+    
+    private static final VehicleEvent.EventType[] EVENT_TYPES = VehicleEvent.EventType.values();
+    
+    private static final int HAS_VEHICLE = 1;
+    private static final int HAS_TIMESTAMP = 1 << 1;
+    private static final int HAS_ID = 1 << 2;
+    private static final int HAS_GARAGE_ID = 1 << 3;
+    private static final int HAS_YEAR = 1 << 4;
+    private static final int HAS_VERSION = 1 << 5;
+    
+    private static final int FIXED_SIZE = 4 + 8 + 4 + 8 + 8 + 4 + 3 * 2 + 8;
+    
+    private VehicleEventCodec() {
+    }
+    
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 1 && data[0] == MAGIC;
+    }
+    
+    public static byte[] encode(VehicleEvent event) {
+        VehicleDTO vehicle = event.getVehicle();
+        byte[] brand = vehicle == null ? null : utf8(vehicle.getBrand());
+        byte[] model = vehicle == null ? null : utf8(vehicle.getModel());
+        byte[] fuelType = vehicle == null ? null : utf8(vehicle.getFuelType());
+        
+        int flags = 0;
+        if (vehicle != null) {
+            flags |= HAS_VEHICLE;
+            flags |= vehicle.getId() != null ? HAS_ID : 0;
+            flags |= vehicle.getGarageId() != null ? HAS_GARAGE_ID : 0;
+            flags |= vehicle.getManufacturingYear() != null ? HAS_YEAR : 0;
+        }
+        flags |= event.getTimestamp() != null ? HAS_TIMESTAMP : 0;
+        flags |= event.getVersion() != null ? HAS_VERSION : 0;
+        
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + length(brand) + length(model) + length(fuelType));
+        buffer.put(MAGIC);
+        buffer.put(VERSION_2);
+        buffer.put(event.getEventType() == null ? -1 : (byte) event.getEventType().ordinal());
+        buffer.put((byte) flags);
+        if (event.getTimestamp() != null) {
+            buffer.putLong(event.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(event.getTimestamp().getNano());
+        } else {
+            buffer.putLong(0).putInt(0);
+        }
+        buffer.putLong((flags & HAS_ID) != 0 ? vehicle.getId() : 0);
+        buffer.putLong((flags & HAS_GARAGE_ID) != 0 ? vehicle.getGarageId() : 0);
+        buffer.putInt((flags & HAS_YEAR) != 0 ? vehicle.getManufacturingYear() : 0);
+        putString(buffer, brand);
+        putString(buffer, model);
+        putString(buffer, fuelType);
+        buffer.putLong((flags & HAS_VERSION) != 0 ? event.getVersion() : 0);
+        return buffer.array();
+    }
+    
+    // Any malformed input, truncated or with an unknown event type, fails with SerializationException
+    public static VehicleEvent decode(byte[] data) {
+        try {
+            return read(ByteBuffer.wrap(data));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated vehicle event of " + data.length + " bytes", e);
+        }
+    }
+    
+    private static VehicleEvent read(ByteBuffer buffer) {
+        if (buffer.get() != MAGIC) {
+            throw new SerializationException("Not a binary vehicle event");
+        }
+        byte version = buffer.get();
+        if (version != VERSION_1 && version != VERSION_2) {
+            throw new SerializationException("Unsupported vehicle event version: " + version);
+        }
+        
+        byte type = buffer.get();
+        if (type < -1 || type >= EVENT_TYPES.length) {
+            throw new SerializationException("Unknown vehicle event type: " + type);
+        }
+        int flags = buffer.get();
+        long epochSecond = buffer.getLong();
+        int nanos = buffer.getInt();
+        long id = buffer.getLong();
+        long garageId = buffer.getLong();
+        int year = buffer.getInt();
+        String brand = getString(buffer);
+        String model = getString(buffer);
+        String fuelType = getString(buffer);
+        long eventVersion = version == VERSION_2 ? buffer.getLong() : 0;
+        
+        VehicleEvent event = new VehicleEvent();
+        event.setEventType(type < 0 ? null : EVENT_TYPES[type]);
+        if ((flags & HAS_TIMESTAMP) != 0) {
+            event.setTimestamp(LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC));
+        }
+        if ((flags & HAS_VERSION) != 0) {
+            event.setVersion(eventVersion);
+        }
+        if ((flags & HAS_VEHICLE) != 0) {
+            event.setVehicle(new VehicleDTO(
+                    (flags & HAS_ID) != 0 ? id : null,
+                    brand,
+                    model,
+                    (flags & HAS_YEAR) != 0 ? year : null,
+                    fuelType,
+                    (flags & HAS_GARAGE_ID) != 0 ? garageId : null));
+        }
+        return event;
+    }
+    
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+    
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new SerializationException("Vehicle event field too long: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+    
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,26 @@
+package com.garagetest.messaging;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Reads both encodings so the codec can be switched without draining the topic first:
+ * binary events start with {@link VehicleEventCodec#MAGIC}, anything else is read as JSON.
+ */
+public class VehicleEventDeserializer implements Deserializer<VehicleEvent> {
+    
+    private final JsonDeserializer<VehicleEvent> jsonDeserializer = new JsonDeserializer<>(VehicleEvent.class, false);
+    
+    @Override
+    public VehicleEvent deserialize(String topic, byte[] data) {
+        if (VehicleEventCodec.isBinary(data)) {
+            return VehicleEventCodec.decode(data);
+        }
+        return jsonDeserializer.deserialize(topic, data);
+    }
+    
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
@@ -0,0 +1,31 @@
+package com.garagetest.messaging;
+
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Writes vehicle events with {@link VehicleEventCodec} when binary encoding is enabled, and
+ * everything else as JSON.
+ */
+public class VehicleEventSerializer implements Serializer<Object> {
+    
+    private final boolean binary;
+    private final JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+    
+    public VehicleEventSerializer(boolean binary) {
+        this.binary = binary;
+    }
+    
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (binary && data instanceof VehicleEvent event) {
+            return VehicleEventCodec.encode(event);
+        }
+        return jsonSerializer.serialize(topic, data);
+    }
+    
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
@@ -0,0 +1,158 @@
+package com.garagetest.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garagetest.config.KafkaConfig;
+import com.garagetest.model.OutboxDeadLetter;
+import com.garagetest.model.OutboxEvent;
+import com.garagetest.repository.OutboxDeadLetterRepository;
+import com.garagetest.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the outbox table to the vehicles topic in id order. A batch is deleted only after every
+ * record in it has been acknowledged, so delivery is at-least-once: a failed or interrupted batch
+ * is sent again on the next run. Only one batch is in flight at a time, which keeps the producer
+ * from being flooded when the outbox has a large backlog. A row whose payload cannot be read will
+ * never succeed, so it is moved to the dead-letter table in the same transaction that deletes its
+ * batch and the events behind it keep flowing.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicle.outbox.relay-enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class VehicleOutboxRelay {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxDeadLetterRepository outboxDeadLetterRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long sendTimeoutMs;
+    
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Counter deadLetterCounter;
+    private final Timer publishLatency;
+    
+    public VehicleOutboxRelay(OutboxEventRepository outboxEventRepository,
+                              OutboxDeadLetterRepository outboxDeadLetterRepository,
+                              TransactionTemplate transactionTemplate,
+                              KafkaTemplate<String, Object> kafkaTemplate,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${vehicle.outbox.batch-size:500}") int batchSize,
+                              @Value("${vehicle.outbox.max-batches-per-run:20}") int maxBatchesPerRun,
+                              @Value("${vehicle.outbox.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxDeadLetterRepository = outboxDeadLetterRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.sendTimeoutMs = sendTimeoutMs;
+        
+        this.publishedCounter = meterRegistry.counter("vehicle.events.published", "outcome", "success");
+        this.failedCounter = meterRegistry.counter("vehicle.events.published", "outcome", "failure");
+        this.deadLetterCounter = meterRegistry.counter("vehicle.events.published", "outcome", "dead_letter");
+        this.publishLatency = Timer.builder("vehicle.events.publish.latency")
+                .description("Time from outbox insert to broker acknowledgement")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+    
+    @Scheduled(fixedDelayString = "${vehicle.outbox.poll-interval-ms:100}")
+    public void relay() {
+        for (int run = 0; run < maxBatchesPerRun; run++) {
+            List<OutboxEvent> batch = outboxEventRepository.findAllByOrderByIdAsc(Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<OutboxDeadLetter> deadLetters = new ArrayList<>();
+            if (!send(batch, deadLetters)) {
+                return;
+            }
+            List<Long> ids = batch.stream().map(OutboxEvent::getId).toList();
+            if (deadLetters.isEmpty()) {
+                outboxEventRepository.deleteAllByIdInBatch(ids);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> {
+                    outboxDeadLetterRepository.saveAll(deadLetters);
+                    outboxEventRepository.deleteAllByIdInBatch(ids);
+                });
+                deadLetterCounter.increment(deadLetters.size());
+            }
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+    
+    // Returns true once the broker has acknowledged every readable event in the batch; unreadable
+    // rows are added to deadLetters instead of being sent
+    private boolean send(List<OutboxEvent> batch, List<OutboxDeadLetter> deadLetters) {
+        List<CompletableFuture<?>> acks = new ArrayList<>(batch.size());
+        List<OutboxEvent> sent = new ArrayList<>(batch.size());
+        Instant now = Instant.now();
+        try {
+            for (OutboxEvent outboxEvent : batch) {
+                VehicleEvent event = read(outboxEvent, deadLetters, now);
+                if (event != null) {
+                    acks.add(kafkaTemplate.send(KafkaConfig.VEHICLE_TOPIC, outboxEvent.getMessageKey(), event));
+                    sent.add(outboxEvent);
+                }
+            }
+            CompletableFuture.allOf(acks.toArray(new CompletableFuture[0])).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            failedCounter.increment(acks.size());
+            log.error("Error relaying {} vehicle events, will retry: {}", acks.size(), e.getMessage());
+            return false;
+        }
+        
+        Instant acked = Instant.now();
+        for (OutboxEvent outboxEvent : sent) {
+            publishLatency.record(Duration.between(outboxEvent.getCreatedAt(), acked));
+        }
+        publishedCounter.increment(sent.size());
+        return true;
+    }
+    
+    private VehicleEvent read(OutboxEvent outboxEvent, List<OutboxDeadLetter> deadLetters, Instant now) {
+        try {
+            return objectMapper.readValue(outboxEvent.getPayload(), VehicleEvent.class);
+        } catch (JsonProcessingException e) {
+            log.error("Unreadable outbox payload {}, moving it to the dead-letter table: {}",
+                    outboxEvent.getId(), e.getMessage());
+            deadLetters.add(new OutboxDeadLetter(outboxEvent.getId(), outboxEvent.getMessageKey(),
+                    outboxEvent.getEventType(), outboxEvent.getPayload(),
+                    abbreviate(e.getOriginalMessage()), outboxEvent.getCreatedAt(), now));
+            return null;
+        }
+    }
+    
+    private static String abbreviate(String message) {
+        return message == null || message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
@@ -1,44 +1,63 @@
 package com.garagetest.messaging;
 
-import com.garagetest.config.KafkaConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.garagetest.dto.VehicleDTO;
+import com.garagetest.model.OutboxEvent;
+import com.garagetest.repository.OutboxEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.UncheckedIOException;
+import java.time.Instant;
+
+/**
+ * Records vehicle events in the outbox table as part of the caller's transaction.
+ * {@link VehicleOutboxRelay} delivers them to Kafka once committed.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Transactional(propagation = Propagation.MANDATORY)
 public class VehiclePublisher {
     
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    
+    public void publishVehicleCreated(VehicleDTO vehicleDTO, long version) {
+        append(VehicleEvent.vehicleCreated(vehicleDTO, version));
+        log.debug("Recorded vehicle created event: {}", vehicleDTO.getId());
+    }
     
-    public void publishVehicleCreated(VehicleDTO vehicleDTO) {
-        VehicleEvent event = VehicleEvent.vehicleCreated(vehicleDTO);
-        sendVehicleEvent(event);
-        log.info("Published vehicle created event: {}", vehicleDTO.getId());
+    public void publishVehicleUpdated(VehicleDTO vehicleDTO, long version) {
+        append(VehicleEvent.vehicleUpdated(vehicleDTO, version));
+        log.debug("Recorded vehicle updated event: {}", vehicleDTO.getId());
     }
     
-    public void publishVehicleUpdated(VehicleDTO vehicleDTO) {
-        VehicleEvent event = VehicleEvent.vehicleUpdated(vehicleDTO);
-        sendVehicleEvent(event);
-        log.info("Published vehicle updated event: {}", vehicleDTO.getId());
+    // The version is the deleted row's plus one, so the deletion sorts after its last update
+    public void publishVehicleDeleted(VehicleDTO vehicleDTO, long version) {
+        append(VehicleEvent.vehicleDeleted(vehicleDTO, version + 1));
+        log.debug("Recorded vehicle deleted event: {}", vehicleDTO.getId());
     }
     
-    public void publishVehicleDeleted(VehicleDTO vehicleDTO) {
-        VehicleEvent event = VehicleEvent.vehicleDeleted(vehicleDTO);
-        sendVehicleEvent(event);
-        log.info("Published vehicle deleted event: {}", vehicleDTO.getId());
+    private void append(VehicleEvent event) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        // Keyed by garage so a garage's events land on one partition, in order
+        outboxEvent.setMessageKey(String.valueOf(event.getVehicle().getGarageId()));
+        outboxEvent.setEventType(event.getEventType().name());
+        outboxEvent.setPayload(serialize(event));
+        outboxEvent.setCreatedAt(Instant.now());
+        outboxEventRepository.save(outboxEvent);
     }
     
-    private void sendVehicleEvent(VehicleEvent event) {
+    private String serialize(VehicleEvent event) {
         try {
-            kafkaTemplate.send(KafkaConfig.VEHICLE_TOPIC, event.getVehicle().getId().toString(), event);
-            log.info("Sent vehicle event: {} for vehicle ID: {}", event.getEventType(), event.getVehicle().getId());
-            log.info(event.toString());
-        } catch (Exception e) {
-            log.error("Error publishing vehicle event: {}", e.getMessage(), e);
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Could not serialize vehicle event for vehicle ID: " + event.getVehicle().getId(), e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.garagetest.messaging;
+
+/**
+ * Last event version seen per vehicle, kept in fixed-size primitive arrays so memory stays bounded
+ * however many vehicles flow through. Each vehicle id hashes to a set of {@link #WAYS} slots; a full
+ * set reuses its least recently written slot, and a vehicle forgotten that way accepts its next event.
+ */
+final class VehicleVersionTracker {
+    
+    static final int WAYS = 4;
+    
+    private final long[] vehicleIds;
+    private final long[] versions;
+    // Write order per slot, zero while the slot is unused
+    private final long[] stamps;
+    private final int setMask;
+    private long clock;
+    
+    VehicleVersionTracker(int capacity) {
+        int sets = Integer.highestOneBit(Math.max(capacity / WAYS, 1));
+        this.vehicleIds = new long[sets * WAYS];
+        this.versions = new long[sets * WAYS];
+        this.stamps = new long[sets * WAYS];
+        this.setMask = sets - 1;
+    }
+    
+    /**
+     * Records {@code version} for the vehicle if it is newer than the last one seen.
+     * Returns false for duplicates and stale out-of-order events.
+     */
+    synchronized boolean advance(long vehicleId, long version) {
+        int first = index(vehicleId) * WAYS;
+        int victim = first;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (stamps[slot] != 0 && vehicleIds[slot] == vehicleId) {
+                if (version <= versions[slot]) {
+                    return false;
+                }
+                versions[slot] = version;
+                stamps[slot] = ++clock;
+                return true;
+            }
+            if (stamps[slot] < stamps[victim]) {
+                victim = slot;
+            }
+        }
+        vehicleIds[victim] = vehicleId;
+        versions[victim] = version;
+        stamps[victim] = ++clock;
+        return true;
+    }
+    
+    int capacity() {
+        return stamps.length;
+    }
+    
+    private int index(long vehicleId) {
+        // Fibonacci hashing spreads sequential ids across sets
+        return (int) ((vehicleId * 0x9E3779B97F4A7C15L) >>> 32) & setMask;
+    }
+}
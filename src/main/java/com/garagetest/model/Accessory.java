@@ -4,13 +4,24 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
+import java.util.Locale;
 
 @Entity
+@Table(indexes = @Index(name = "idx_accessory_type_lower", columnList = "type_lower, vehicle_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,6 +30,12 @@ public class Accessory {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Bumped on every update; the accessory's ETag
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @NotBlank
     private String name;
 
@@ -32,7 +49,17 @@ public class Accessory {
     @NotBlank
     private String type;
 
-    @ManyToOne
+    // Lowercase copy of type for indexed case-insensitive searches
+    @Setter(AccessLevel.NONE)
+    private String typeLower;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vehicle_id")
     private Vehicle vehicle;
-}
\ No newline at end of file
+
+    @PrePersist
+    @PreUpdate
+    void normalizeSearchKeys() {
+        typeLower = type == null ? null : type.toLowerCase(Locale.ROOT);
+    }
+}
@@ -4,33 +4,57 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Type;
 
-import java.time.DayOfWeek;
+import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_garage_name_id", columnList = "name, id"),
+        @Index(name = "idx_garage_city", columnList = "city")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+// UPDATEs list only the changed columns: editing the name does not rewrite the opening hours JSON
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Garage {
+    public static final int MAX_VEHICLES = 50;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Bumped on every update; the garage's ETag
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @NotBlank
     private String name;
 
     @NotBlank
     private String address;
 
+    // Lowercase city parsed from the address, indexed for the city search
+    @Setter(AccessLevel.NONE)
+    private String city;
+
     @NotBlank
     private String telephone;
 
@@ -38,15 +62,44 @@ public class Garage {
     @Email
     private String email;
 
-    @JdbcTypeCode(SqlTypes.JSON)
+    @Type(OpeningHoursType.class)
     @Column(columnDefinition = "json")
-    private Map<DayOfWeek, List<OpeningTime>> openingHours = new HashMap<>();
+    private OpeningHours openingHours = OpeningHours.EMPTY;
 
     @OneToMany(mappedBy = "garage", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<Vehicle> vehicles = new ArrayList<>();
 
+    // Denormalized vehicle counter, only ever changed through GarageRepository's native updates
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private int vehicleCount = 0;
+
+    // Denormalized accessory count and price total over the garage's vehicles, maintained like vehicleCount
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private int accessoryCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false, precision = 38, scale = 2)
+    private BigDecimal accessoryValue = BigDecimal.ZERO;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeSearchKeys() {
+        city = cityOf(address);
+    }
+
+    // The city is the part of the address after its last comma, e.g. "12 Rue Neuve, Lyon" -> "lyon"
+    public static String cityOf(String address) {
+        if (address == null) {
+            return null;
+        }
+        return address.substring(address.lastIndexOf(',') + 1).trim().toLowerCase(Locale.ROOT);
+    }
+
     // Business constraint: Maximum 50 vehicles per garage
     public boolean canAddVehicle() {
-        return vehicles.size() < 50;
+        return vehicleCount < MAX_VEHICLES;
     }
 }
\ No newline at end of file
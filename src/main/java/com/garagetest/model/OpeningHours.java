@@ -0,0 +1,345 @@
+package com.garagetest.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable weekly opening hours, stored and served as one canonical JSON text.
+ * <pre>
+ * {"MONDAY":[{"startTime":"09:00:00","endTime":"12:00:00"},...],"TUESDAY":[...],...}
+ * </pre>
+ * Days appear in week order, without empty days, and times to the second. In memory each time
+ * range is packed into one long (day, start second, end second). A value read from the database
+ * keeps its text: the first use checks that it is canonical with a single scan and unpacks the
+ * ranges, and the API then writes that text as is. Only texts in another layout, such as rows
+ * written before this type existed with times as [9,0] arrays, go through a full JSON parse.
+ */
+@JsonSerialize(using = OpeningHours.JsonWriter.class)
+public final class OpeningHours implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final DayOfWeek[] DAYS = DayOfWeek.values();
+    private static final String START = "{\"startTime\":\"";
+    private static final String END = "\",\"endTime\":\"";
+    private static final String RANGE_END = "\"}";
+
+    private static final ObjectMapper LEGACY_READER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private static final TypeReference<Map<DayOfWeek, List<OpeningTime>>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    public static final OpeningHours EMPTY = new OpeningHours(new long[0]);
+
+    // Database text, null for values built in memory
+    private final String stored;
+    // Packed ranges grouped by day in week order, and the canonical JSON; both filled on first use
+    private volatile long[] ranges;
+    private volatile String json;
+
+    private OpeningHours(long[] ranges) {
+        this.stored = null;
+        this.ranges = ranges;
+    }
+
+    private OpeningHours(String stored) {
+        this.stored = stored;
+    }
+
+    public static OpeningHours fromJson(String json) {
+        return new OpeningHours(json);
+    }
+
+    // Every time range needs a start and an end time, or the request is refused with 400 (Jackson
+    // wraps the exception); times keep their precision to the second
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static OpeningHours of(Map<DayOfWeek, List<OpeningTime>> openingHours) {
+        return of(openingHours, true);
+    }
+
+    private static OpeningHours of(Map<DayOfWeek, List<OpeningTime>> openingHours, boolean strict) {
+        if (openingHours == null || openingHours.isEmpty()) {
+            return EMPTY;
+        }
+        long[] ranges = new long[8];
+        int count = 0;
+        for (DayOfWeek day : DAYS) {
+            List<OpeningTime> times = openingHours.get(day);
+            if (times == null) {
+                continue;
+            }
+            for (OpeningTime time : times) {
+                if (time == null || time.getStartTime() == null || time.getEndTime() == null) {
+                    if (strict) {
+                        throw new IllegalArgumentException("Opening time on " + day + " needs a start and an end time");
+                    }
+                    continue;
+                }
+                if (count == ranges.length) {
+                    ranges = Arrays.copyOf(ranges, count * 2);
+                }
+                ranges[count++] = pack(day.ordinal(), time.getStartTime().toSecondOfDay(), time.getEndTime().toSecondOfDay());
+            }
+        }
+        return count == 0 ? EMPTY : new OpeningHours(Arrays.copyOf(ranges, count));
+    }
+
+    public String toJson() {
+        String canonical = json;
+        if (canonical == null) {
+            if (ranges == null) {
+                resolve();
+            } else {
+                json = write(ranges);
+            }
+            canonical = json;
+        }
+        return canonical;
+    }
+
+    public Map<DayOfWeek, List<OpeningTime>> toMap() {
+        Map<DayOfWeek, List<OpeningTime>> map = new EnumMap<>(DayOfWeek.class);
+        for (long range : ranges()) {
+            map.computeIfAbsent(DAYS[dayOf(range)], day -> new ArrayList<>())
+                    .add(new OpeningTime(LocalTime.ofSecondOfDay(startOf(range)), LocalTime.ofSecondOfDay(endOf(range))));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    public boolean isEmpty() {
+        return ranges().length == 0;
+    }
+
+    // Visits each time range as (day, start second of day, end second of day)
+    public void forEachRange(RangeConsumer consumer) {
+        for (long range : ranges()) {
+            consumer.accept(DAYS[dayOf(range)], startOf(range), endOf(range));
+        }
+    }
+
+    @FunctionalInterface
+    public interface RangeConsumer {
+        void accept(DayOfWeek day, int startSecond, int endSecond);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof OpeningHours other && Arrays.equals(ranges(), other.ranges());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges());
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    private long[] ranges() {
+        long[] unpacked = ranges;
+        if (unpacked == null) {
+            resolve();
+            unpacked = ranges;
+        }
+        return unpacked;
+    }
+
+    // Racing threads compute the same result, so the fields need no lock
+    private void resolve() {
+        long[] parsed = parseCanonical(stored);
+        if (parsed != null) {
+            json = stored;
+            ranges = parsed;
+            return;
+        }
+        OpeningHours legacy;
+        try {
+            // Rows stored before ranges were validated may hold incomplete ones; they are dropped
+            legacy = of(LEGACY_READER.readValue(stored, MAP_TYPE), false);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable opening hours: " + stored, e);
+        }
+        json = legacy.toJson();
+        ranges = legacy.ranges;
+    }
+
+    private static String write(long[] ranges) {
+        StringBuilder out = new StringBuilder(2 + ranges.length * 56);
+        out.append('{');
+        int day = -1;
+        for (long range : ranges) {
+            if (dayOf(range) != day) {
+                if (day >= 0) {
+                    out.append("],");
+                }
+                day = dayOf(range);
+                out.append('"').append(DAYS[day].name()).append("\":[");
+            } else {
+                out.append(',');
+            }
+            out.append(START);
+            appendTime(out, startOf(range));
+            out.append(END);
+            appendTime(out, endOf(range));
+            out.append(RANGE_END);
+        }
+        if (day >= 0) {
+            out.append(']');
+        }
+        return out.append('}').toString();
+    }
+
+    // Ranges of a text in exactly the layout write() produces, or null for any other text
+    private static long[] parseCanonical(String text) {
+        if (text == null || !text.startsWith("{") || !text.endsWith("}")) {
+            return null;
+        }
+        long[] ranges = new long[8];
+        int count = 0;
+        int last = text.length() - 1;
+        int pos = 1;
+        int previousDay = -1;
+        while (pos < last) {
+            if (previousDay >= 0 && text.charAt(pos++) != ',') {
+                return null;
+            }
+            int day = dayAt(text, pos);
+            if (day <= previousDay) {
+                return null;
+            }
+            previousDay = day;
+            pos += DAYS[day].name().length() + 2;
+            if (!text.startsWith(":[", pos)) {
+                return null;
+            }
+            pos += 2;
+            while (true) {
+                if (!text.startsWith(START, pos)) {
+                    return null;
+                }
+                pos += START.length();
+                int start = secondAt(text, pos);
+                pos += 8;
+                if (start < 0 || !text.startsWith(END, pos)) {
+                    return null;
+                }
+                pos += END.length();
+                int end = secondAt(text, pos);
+                pos += 8;
+                if (end < 0 || !text.startsWith(RANGE_END, pos)) {
+                    return null;
+                }
+                pos += RANGE_END.length();
+                if (count == ranges.length) {
+                    ranges = Arrays.copyOf(ranges, count * 2);
+                }
+                ranges[count++] = pack(day, start, end);
+                if (pos >= last || text.charAt(pos) != ',') {
+                    break;
+                }
+                pos++;
+            }
+            if (pos >= last || text.charAt(pos++) != ']') {
+                return null;
+            }
+        }
+        return pos == last ? Arrays.copyOf(ranges, count) : null;
+    }
+
+    // Ordinal of the quoted day name at pos, or -1
+    private static int dayAt(String text, int pos) {
+        if (pos >= text.length() || text.charAt(pos) != '"') {
+            return -1;
+        }
+        for (DayOfWeek day : DAYS) {
+            String name = day.name();
+            if (text.startsWith(name, pos + 1) && text.startsWith("\"", pos + 1 + name.length())) {
+                return day.ordinal();
+            }
+        }
+        return -1;
+    }
+
+    // Second of day of an "HH:mm:ss" time at pos, or -1
+    private static int secondAt(String text, int pos) {
+        if (pos + 8 > text.length() || text.charAt(pos + 2) != ':' || text.charAt(pos + 5) != ':') {
+            return -1;
+        }
+        int hours = twoDigits(text, pos);
+        int minutes = twoDigits(text, pos + 3);
+        int seconds = twoDigits(text, pos + 6);
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return -1;
+        }
+        return hours * 3600 + minutes * 60 + seconds;
+    }
+
+    private static int twoDigits(String text, int pos) {
+        int tens = text.charAt(pos) - '0';
+        int units = text.charAt(pos + 1) - '0';
+        return tens < 0 || tens > 9 || units < 0 || units > 9 ? -1 : tens * 10 + units;
+    }
+
+    private static void appendTime(StringBuilder out, int secondOfDay) {
+        appendTwoDigits(out, secondOfDay / 3600).append(':');
+        appendTwoDigits(out, secondOfDay / 60 % 60).append(':');
+        appendTwoDigits(out, secondOfDay % 60);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+        return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    // 17 bits hold a second of day (< 86400)
+    private static long pack(int day, int startSecond, int endSecond) {
+        return ((long) day << 34) | ((long) startSecond << 17) | endSecond;
+    }
+
+    private static int dayOf(long range) {
+        return (int) (range >>> 34);
+    }
+
+    private static int startOf(long range) {
+        return (int) (range >>> 17) & 0x1FFFF;
+    }
+
+    private static int endOf(long range) {
+        return (int) range & 0x1FFFF;
+    }
+
+    // Writes the canonical text as is, so loaded opening hours reach the response unparsed
+    public static final class JsonWriter extends StdSerializer<OpeningHours> {
+
+        public JsonWriter() {
+            super(OpeningHours.class);
+        }
+
+        @Override
+        public void serialize(OpeningHours value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeRawValue(value.toJson());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.garagetest.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.usertype.UserType;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+
+/**
+ * Maps {@link OpeningHours} to a JSON column as its canonical text. Reads hand the text over
+ * unparsed; values are immutable, so Hibernate's snapshots and cache entries share one instance.
+ */
+public class OpeningHoursType implements UserType<OpeningHours> {
+
+    @Override
+    public int getSqlType() {
+        return SqlTypes.JSON;
+    }
+
+    @Override
+    public Class<OpeningHours> returnedClass() {
+        return OpeningHours.class;
+    }
+
+    @Override
+    public boolean equals(OpeningHours x, OpeningHours y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(OpeningHours x) {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public OpeningHours nullSafeGet(ResultSet rs, int position, SharedSessionContractImplementor session, Object owner)
+            throws SQLException {
+        String json = rs.getString(position);
+        return json == null ? null : OpeningHours.fromJson(json);
+    }
+
+    // H2 keeps bytes as JSON, whereas a string parameter would be stored as a JSON string literal
+    @Override
+    public void nullSafeSet(PreparedStatement st, OpeningHours value, int index, SharedSessionContractImplementor session)
+            throws SQLException {
+        if (value == null) {
+            st.setNull(index, Types.OTHER);
+        } else {
+            st.setBytes(index, value.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public OpeningHours deepCopy(OpeningHours value) {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(OpeningHours value) {
+        return value;
+    }
+
+    @Override
+    public OpeningHours assemble(Serializable cached, Object owner) {
+        return (OpeningHours) cached;
+    }
+}
@@ -0,0 +1,42 @@
+package com.garagetest.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Outbox row the relay could not read. It is moved here, keeping its outbox id, so the events
+ * behind it keep flowing and the payload stays available for inspection or a manual replay.
+ */
+@Entity
+@Table(name = "outbox_dead_letter")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxDeadLetter {
+    // Id of the original outbox row
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String messageKey;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant failedAt;
+}
@@ -4,24 +4,48 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Past;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
+import java.math.BigDecimal;
 import java.time.Year;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_vehicle_brand_lower", columnList = "brand_lower, garage_id"),
+        @Index(name = "idx_vehicle_model_lower", columnList = "model_lower, garage_id"),
+        @Index(name = "idx_vehicle_fuel_type_lower", columnList = "fuel_type_lower")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Vehicle {
+    // Pooled sequence instead of IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vehicle_seq")
+    @SequenceGenerator(name = "vehicle_seq", sequenceName = "vehicle_seq", allocationSize = 50)
     private Long id;
 
+    // Bumped on every update; also orders this vehicle's events for consumers
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @NotBlank
     private String brand;
 
@@ -34,10 +58,39 @@ public class Vehicle {
     @NotBlank
     private String fuelType;
 
-    @ManyToOne
+    // Lowercase copies kept in step with the fields above, so case-insensitive searches
+    // compare against an indexed column instead of scanning LOWER(...) of every row
+    @Setter(AccessLevel.NONE)
+    private String brandLower;
+
+    @Setter(AccessLevel.NONE)
+    private String modelLower;
+
+    @Setter(AccessLevel.NONE)
+    private String fuelTypeLower;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "garage_id")
     private Garage garage;
 
     @OneToMany(mappedBy = "vehicle", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<Accessory> accessories = new ArrayList<>();
-}
\ No newline at end of file
+
+    // Denormalized accessory count and price total, only ever changed through VehicleRepository's native updates
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private int accessoryCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false, precision = 38, scale = 2)
+    private BigDecimal accessoryValue = BigDecimal.ZERO;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeSearchKeys() {
+        brandLower = brand == null ? null : brand.toLowerCase(Locale.ROOT);
+        modelLower = model == null ? null : model.toLowerCase(Locale.ROOT);
+        fuelTypeLower = fuelType == null ? null : fuelType.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,33 +1,98 @@
 package com.garagetest.repository;
 
+import com.garagetest.dto.AccessoryDTO;
+import com.garagetest.dto.VersionSummaryDTO;
 import com.garagetest.model.Accessory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AccessoryRepository extends JpaRepository<Accessory, Long> {
     
+    // Rows fetched per round trip by the streamed finders
+    String STREAM_FETCH_SIZE = "500";
+    
     // Find accessories by vehicle id
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<Accessory> findByVehicleId(Long vehicleId);
     
+    // Accessories of a vehicle as DTOs, without hydrating the accessories or their vehicle
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.garagetest.dto.AccessoryDTO(a.id, a.name, a.description, a.price, a.type, a.vehicle.id, a.version) FROM Accessory a WHERE a.vehicle.id = :vehicleId")
+    List<AccessoryDTO> findAccessoryDtosByVehicleId(@Param("vehicleId") Long vehicleId);
+    
+    // Versions for ETags, cached like the DTO queries
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT a.version FROM Accessory a WHERE a.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query(VersionSummaryDTO.SELECT + "FROM Accessory m WHERE m.vehicle.id = :vehicleId")
+    VersionSummaryDTO summarizeVersionsByVehicleId(@Param("vehicleId") Long vehicleId);
+    
+    // Accessories of a type as DTOs
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.garagetest.dto.AccessoryDTO(a.id, a.name, a.description, a.price, a.type, a.vehicle.id, a.version) FROM Accessory a WHERE a.typeLower = LOWER(:type)")
+    List<AccessoryDTO> findAccessoryDtosByType(@Param("type") String type);
+    
+    @Query(value = "SELECT new com.garagetest.dto.AccessoryDTO(a.id, a.name, a.description, a.price, a.type, a.vehicle.id, a.version) FROM Accessory a WHERE a.typeLower = LOWER(:type)",
+            countQuery = "SELECT COUNT(a) FROM Accessory a WHERE a.typeLower = LOWER(:type)")
+    Page<AccessoryDTO> findAccessoryDtosByType(@Param("type") String type, Pageable pageable);
+    
+    // Read from the cursor STREAM_FETCH_SIZE rows at a time; consume inside the caller's transaction
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new com.garagetest.dto.AccessoryDTO(a.id, a.name, a.description, a.price, a.type, a.vehicle.id, a.version) FROM Accessory a WHERE a.typeLower = LOWER(:type)")
+    Stream<AccessoryDTO> streamAccessoryDtosByType(@Param("type") String type);
+    
     // Find accessories by type
-    List<Accessory> findByTypeIgnoreCase(String type);
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT a FROM Accessory a WHERE a.typeLower = LOWER(:type)")
+    List<Accessory> findByTypeIgnoreCase(@Param("type") String type);
     
     // Find accessories by name containing the given string
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<Accessory> findByNameContainingIgnoreCase(String name);
     
     // Find accessories by price less than or equal to the given value
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<Accessory> findByPriceLessThanEqual(Double price);
     
-    // Find accessories by vehicle model
-    @Query("SELECT a FROM Accessory a JOIN a.vehicle v WHERE LOWER(v.model) = LOWER(:model)")
+    // Find accessories by vehicle model, fetching their vehicles in the same select
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT a FROM Accessory a JOIN FETCH a.vehicle v WHERE v.modelLower = LOWER(:model)")
     List<Accessory> findByVehicleModel(@Param("model") String model);
     
-    // Find accessories by garage id
-    @Query("SELECT a FROM Accessory a JOIN a.vehicle v JOIN v.garage g WHERE g.id = :garageId")
+    // Find accessories by garage id, fetching their vehicles in the same select
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT a FROM Accessory a JOIN FETCH a.vehicle v WHERE v.garage.id = :garageId")
     List<Accessory> findByGarageId(@Param("garageId") Long garageId);
-}
\ No newline at end of file
+    
+    // Bulk deletes for the vehicle and garage delete paths: one statement, no accessories loaded.
+    // Hibernate then drops the whole Accessory cache region and the vehicles' accessory collections.
+    
+    @Modifying
+    @Query("DELETE FROM Accessory a WHERE a.vehicle.id IN :vehicleIds")
+    int deleteByVehicleIdIn(@Param("vehicleIds") Collection<Long> vehicleIds);
+    
+    @Modifying
+    @Query("DELETE FROM Accessory a WHERE a.vehicle.id IN (SELECT v.id FROM Vehicle v WHERE v.garage.id = :garageId)")
+    int deleteByGarageId(@Param("garageId") Long garageId);
+    
+    // Fill the lowercase type column of rows written before it existed or by plain SQL
+    @Modifying
+    @Query("UPDATE Accessory a SET a.typeLower = LOWER(a.type) WHERE a.typeLower IS NULL")
+    int backfillSearchKeys();
+}
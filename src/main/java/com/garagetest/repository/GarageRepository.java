@@ -1,34 +1,213 @@
 package com.garagetest.repository;
 
+import com.garagetest.dto.GarageDTO;
+import com.garagetest.dto.GarageStatsDTO;
 import com.garagetest.model.Garage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface GarageRepository extends JpaRepository<Garage, Long> {
     
-    // Find garages by name containing the given string (case insensitive)
-    Page<Garage> findByNameContainingIgnoreCase(String name, Pageable pageable);
+    String VEHICLE_COUNT_SPACE = "garage_vehicle_count";
+    String ACCESSORY_TOTALS_SPACE = "garage_accessory_totals";
     
-    // Find garages by city (extracted from address)
-    @Query("SELECT g FROM Garage g WHERE LOWER(g.address) LIKE LOWER(CONCAT('%', :city, '%'))")
-    Page<Garage> findByCity(@Param("city") String city, Pageable pageable);
+    // Rows fetched per round trip by the streamed finders
+    String STREAM_FETCH_SIZE = "500";
     
-    // Find garages that have vehicles of a specific brand
-    @Query("SELECT DISTINCT g FROM Garage g JOIN g.vehicles v WHERE LOWER(v.brand) = LOWER(:brand)")
-    List<Garage> findByVehicleBrand(@Param("brand") String brand);
+    // DTO projections for the list endpoints: one statement, no entity hydration.
+    // Vehicle and accessory filters use subqueries, so no DISTINCT over the JSON column is needed.
     
-    // Find garages that have vehicles of a specific model
-    @Query("SELECT DISTINCT g FROM Garage g JOIN g.vehicles v WHERE LOWER(v.model) = LOWER(:model)")
-    List<Garage> findByVehicleModel(@Param("model") String model);
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query(value = "SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g",
+            countQuery = "SELECT COUNT(g) FROM Garage g")
+    Page<GarageDTO> findGarageDtos(Pageable pageable);
     
-    // Find garages that have vehicles with a specific accessory type
-    @Query("SELECT DISTINCT g FROM Garage g JOIN g.vehicles v JOIN v.accessories a WHERE LOWER(a.type) = LOWER(:accessoryType)")
-    List<Garage> findByAccessoryType(@Param("accessoryType") String accessoryType);
-}
\ No newline at end of file
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query(value = "SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE LOWER(g.name) LIKE LOWER(CONCAT('%', :name, '%'))",
+            countQuery = "SELECT COUNT(g) FROM Garage g WHERE LOWER(g.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    Page<GarageDTO> findGarageDtosByName(@Param("name") String name, Pageable pageable);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query(value = "SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.city LIKE CONCAT(LOWER(:city), '%')",
+            countQuery = "SELECT COUNT(g) FROM Garage g WHERE g.city LIKE CONCAT(LOWER(:city), '%')")
+    Page<GarageDTO> findGarageDtosByCity(@Param("city") String city, Pageable pageable);
+    
+    // Version of one garage for its ETag; repeat lookups come from the query cache until a garage changes
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT g.version FROM Garage g WHERE g.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+    
+    // Not cacheable: the id sets come from the text index and rarely repeat, so each would be a new entry
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN :ids")
+    List<GarageDTO> findGarageDtosByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN (SELECT v.garage.id FROM Vehicle v WHERE v.brandLower = LOWER(:brand))")
+    List<GarageDTO> findGarageDtosByVehicleBrand(@Param("brand") String brand);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN (SELECT v.garage.id FROM Vehicle v WHERE v.modelLower = LOWER(:model))")
+    List<GarageDTO> findGarageDtosByVehicleModel(@Param("model") String model);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN (SELECT a.vehicle.garage.id FROM Accessory a WHERE a.typeLower = LOWER(:accessoryType))")
+    List<GarageDTO> findGarageDtosByAccessoryType(@Param("accessoryType") String accessoryType);
+    
+    // Paged variants of the three searches above
+    
+    @Query(value = "SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN (SELECT v.garage.id FROM Vehicle v WHERE v.brandLower = LOWER(:brand))",
+            countQuery = "SELECT COUNT(g) FROM Garage g WHERE g.id IN (SELECT v.garage.id FROM Vehicle v WHERE v.brandLower = LOWER(:brand))")
+    Page<GarageDTO> findGarageDtosByVehicleBrand(@Param("brand") String brand, Pageable pageable);
+    
+    @Query(value = "SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN (SELECT v.garage.id FROM Vehicle v WHERE v.modelLower = LOWER(:model))",
+            countQuery = "SELECT COUNT(g) FROM Garage g WHERE g.id IN (SELECT v.garage.id FROM Vehicle v WHERE v.modelLower = LOWER(:model))")
+    Page<GarageDTO> findGarageDtosByVehicleModel(@Param("model") String model, Pageable pageable);
+    
+    @Query(value = "SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN (SELECT a.vehicle.garage.id FROM Accessory a WHERE a.typeLower = LOWER(:accessoryType))",
+            countQuery = "SELECT COUNT(g) FROM Garage g WHERE g.id IN (SELECT a.vehicle.garage.id FROM Accessory a WHERE a.typeLower = LOWER(:accessoryType))")
+    Page<GarageDTO> findGarageDtosByAccessoryType(@Param("accessoryType") String accessoryType, Pageable pageable);
+    
+    // Streamed variants: rows are read from the cursor STREAM_FETCH_SIZE at a time and must be
+    // consumed inside the caller's transaction; projections keep the persistence context empty
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN (SELECT v.garage.id FROM Vehicle v WHERE v.brandLower = LOWER(:brand))")
+    Stream<GarageDTO> streamGarageDtosByVehicleBrand(@Param("brand") String brand);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN (SELECT v.garage.id FROM Vehicle v WHERE v.modelLower = LOWER(:model))")
+    Stream<GarageDTO> streamGarageDtosByVehicleModel(@Param("model") String model);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.id IN (SELECT a.vehicle.garage.id FROM Accessory a WHERE a.typeLower = LOWER(:accessoryType))")
+    Stream<GarageDTO> streamGarageDtosByAccessoryType(@Param("accessoryType") String accessoryType);
+    
+    // Id, name and address of every garage, for rebuilding the in-memory text index
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT g.id, g.name, g.address FROM Garage g")
+    Stream<Object[]> streamGarageTexts();
+    
+    // Id and opening hours of every garage, for the opening hours index and the scan without it
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT g.id, g.openingHours FROM Garage g")
+    Stream<Object[]> streamGarageOpeningHours();
+    
+    // Keyset pages ordered by name then id, starting after the given garage. The leading
+    // name >= :name lets the (name, id) index seek straight to the cursor, so cost does not
+    // grow with depth, and no count query runs.
+    
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.name >= :name AND (g.name > :name OR g.id > :id) ORDER BY g.name, g.id")
+    List<GarageDTO> findGarageDtosAfter(@Param("name") String name, @Param("id") Long id, Limit limit);
+    
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.name >= :name AND (g.name > :name OR g.id > :id) AND LOWER(g.name) LIKE LOWER(CONCAT('%', :search, '%')) ORDER BY g.name, g.id")
+    List<GarageDTO> findGarageDtosByNameAfter(@Param("search") String search, @Param("name") String name, @Param("id") Long id, Limit limit);
+    
+    @Query("SELECT new com.garagetest.dto.GarageDTO(g.id, g.name, g.address, g.telephone, g.email, g.openingHours, g.version) FROM Garage g WHERE g.name >= :name AND (g.name > :name OR g.id > :id) AND g.city LIKE CONCAT(LOWER(:city), '%') ORDER BY g.name, g.id")
+    List<GarageDTO> findGarageDtosByCityAfter(@Param("city") String city, @Param("name") String name, @Param("id") Long id, Limit limit);
+    
+    // The counter updates below are native and declare a query space no entity maps to, so Hibernate
+    // leaves the Garage cache region alone; callers evict the one garage they changed instead
+    
+    // Atomically reserve a vehicle slot; returns 0 when the garage is missing or already full
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = VEHICLE_COUNT_SPACE))
+    @Query(value = "UPDATE garage SET vehicle_count = vehicle_count + 1 WHERE id = :id AND vehicle_count < :max", nativeQuery = true)
+    int incrementVehicleCount(@Param("id") Long id, @Param("max") int max);
+    
+    // Lock a garage row so several slots can be reserved at once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM Garage g WHERE g.id = :id")
+    Optional<Garage> findByIdForUpdate(@Param("id") Long id);
+    
+    // Reserve several slots; callers must hold the row lock from findByIdForUpdate
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = VEHICLE_COUNT_SPACE))
+    @Query(value = "UPDATE garage SET vehicle_count = vehicle_count + :count WHERE id = :id", nativeQuery = true)
+    int addVehicleCount(@Param("id") Long id, @Param("count") int count);
+    
+    // Release a vehicle slot
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = VEHICLE_COUNT_SPACE))
+    @Query(value = "UPDATE garage SET vehicle_count = vehicle_count - 1 WHERE id = :id AND vehicle_count > 0", nativeQuery = true)
+    int decrementVehicleCount(@Param("id") Long id);
+    
+    // Lock every garage row in id order, so a recount waits for in-flight counter writes to commit
+    // and holds back new ones until it commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g.id FROM Garage g ORDER BY g.id")
+    List<Long> lockAllIds();
+    
+    // Recompute every counter from the vehicle table (used to repair counters on existing data)
+    @Modifying
+    @Query("UPDATE Garage g SET g.vehicleCount = (SELECT COUNT(v) FROM Vehicle v WHERE v.garage = g)")
+    int recountVehicles();
+    
+    // Move a garage's accessory totals by the given amounts
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = ACCESSORY_TOTALS_SPACE))
+    @Query(value = "UPDATE garage SET accessory_count = accessory_count + :count, accessory_value = accessory_value + :value WHERE id = :id", nativeQuery = true)
+    int addAccessoryTotals(@Param("id") Long id, @Param("count") int count, @Param("value") BigDecimal value);
+    
+    // Add or take away one vehicle's accessory totals, read from its row, when it joins or leaves the garage
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = ACCESSORY_TOTALS_SPACE))
+    @Query(value = "UPDATE garage SET accessory_count = accessory_count + (SELECT accessory_count FROM vehicle WHERE id = :vehicleId), "
+            + "accessory_value = accessory_value + (SELECT accessory_value FROM vehicle WHERE id = :vehicleId) WHERE id = :id", nativeQuery = true)
+    int addVehicleAccessoryTotals(@Param("id") Long id, @Param("vehicleId") Long vehicleId);
+    
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = ACCESSORY_TOTALS_SPACE))
+    @Query(value = "UPDATE garage SET accessory_count = accessory_count - (SELECT accessory_count FROM vehicle WHERE id = :vehicleId), "
+            + "accessory_value = accessory_value - (SELECT accessory_value FROM vehicle WHERE id = :vehicleId) WHERE id = :id", nativeQuery = true)
+    int subtractVehicleAccessoryTotals(@Param("id") Long id, @Param("vehicleId") Long vehicleId);
+    
+    // Take the slots and accessory totals of the given vehicles, read from their rows, away from
+    // whichever garages hold them; one statement for a batch spread over any number of garages
+    @Modifying
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = VEHICLE_COUNT_SPACE),
+            @QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = ACCESSORY_TOTALS_SPACE)})
+    @Query(value = "UPDATE garage SET "
+            + "vehicle_count = vehicle_count - (SELECT COUNT(*) FROM vehicle v WHERE v.garage_id = garage.id AND v.id IN (:vehicleIds)), "
+            + "accessory_count = accessory_count - (SELECT COALESCE(SUM(v.accessory_count), 0) FROM vehicle v WHERE v.garage_id = garage.id AND v.id IN (:vehicleIds)), "
+            + "accessory_value = accessory_value - (SELECT COALESCE(SUM(v.accessory_value), 0) FROM vehicle v WHERE v.garage_id = garage.id AND v.id IN (:vehicleIds)) "
+            + "WHERE id IN (SELECT v.garage_id FROM vehicle v WHERE v.id IN (:vehicleIds))", nativeQuery = true)
+    int subtractVehicles(@Param("vehicleIds") Collection<Long> vehicleIds);
+    
+    // Recompute every garage's accessory totals from its vehicles' totals; run after VehicleRepository.recountAccessoryTotals
+    @Modifying
+    @Query("UPDATE Garage g SET g.accessoryCount = COALESCE((SELECT SUM(v.accessoryCount) FROM Vehicle v WHERE v.garage = g), 0), "
+            + "g.accessoryValue = COALESCE((SELECT SUM(v.accessoryValue) FROM Vehicle v WHERE v.garage = g), 0)")
+    int recountAccessoryTotals();
+    
+    // Fill the city of rows written before the column existed or by plain SQL, with the same
+    // rule as Garage.cityOf: the lowercased text after the address's last comma
+    @Modifying
+    @Query(value = "UPDATE garage SET city = LOWER(TRIM(REGEXP_REPLACE(address, '^.*,', ''))) WHERE city IS NULL AND address IS NOT NULL", nativeQuery = true)
+    int backfillCities();
+    
+    // Not cacheable: the counters change through native updates that leave the query cache alone
+    @Query(value = "SELECT new com.garagetest.dto.GarageStatsDTO(g.id, g.name, g.vehicleCount, g.accessoryCount, g.accessoryValue) FROM Garage g",
+            countQuery = "SELECT COUNT(g) FROM Garage g")
+    Page<GarageStatsDTO> findGarageStats(Pageable pageable);
+    
+    @Query("SELECT new com.garagetest.dto.GarageStatsDTO(g.id, g.name, g.vehicleCount, g.accessoryCount, g.accessoryValue) FROM Garage g WHERE g.id = :id")
+    Optional<GarageStatsDTO> findGarageStatsById(@Param("id") Long id);
+}
@@ -0,0 +1,15 @@
+package com.garagetest.repository;
+
+import com.garagetest.model.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    // Oldest pending events first
+    List<OutboxEvent> findAllByOrderByIdAsc(Limit limit);
+}
@@ -1,35 +1,156 @@
 package com.garagetest.repository;
 
+import com.garagetest.dto.StatsCountDTO;
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.dto.VehicleStatsDTO;
+import com.garagetest.dto.VersionSummaryDTO;
 import com.garagetest.model.Vehicle;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     
-    // Find vehicles by garage id
+    String ACCESSORY_TOTALS_SPACE = "vehicle_accessory_totals";
+    
+    // Rows fetched per round trip by the streamed finders
+    String STREAM_FETCH_SIZE = "500";
+    
+    // Find vehicles by garage id, with their accessories loaded by the same select
+    @EntityGraph(attributePaths = "accessories")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<Vehicle> findByGarageId(Long garageId);
     
     // Find vehicles by brand
-    List<Vehicle> findByBrandIgnoreCase(String brand);
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT v FROM Vehicle v WHERE v.brandLower = LOWER(:brand)")
+    List<Vehicle> findByBrandIgnoreCase(@Param("brand") String brand);
     
     // Find vehicles by model
-    List<Vehicle> findByModelIgnoreCase(String model);
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT v FROM Vehicle v WHERE v.modelLower = LOWER(:model)")
+    List<Vehicle> findByModelIgnoreCase(@Param("model") String model);
     
     // Find vehicles by model across all garages
-    @Query("SELECT v FROM Vehicle v WHERE LOWER(v.model) = LOWER(:model)")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT v FROM Vehicle v WHERE v.modelLower = LOWER(:model)")
     List<Vehicle> findAllByModel(@Param("model") String model);
     
     // Find vehicles by fuel type
-    List<Vehicle> findByFuelTypeIgnoreCase(String fuelType);
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT v FROM Vehicle v WHERE v.fuelTypeLower = LOWER(:fuelType)")
+    List<Vehicle> findByFuelTypeIgnoreCase(@Param("fuelType") String fuelType);
     
     // Find vehicles by manufacturing year
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<Vehicle> findByManufacturingYear(Integer year);
     
+    // DTO projections: one statement, no entity hydration and no join to garage
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.garagetest.dto.VehicleDTO(v.id, v.brand, v.model, v.manufacturingYear, v.fuelType, v.garage.id, v.version) FROM Vehicle v WHERE v.garage.id = :garageId")
+    List<VehicleDTO> findVehicleDtosByGarageId(@Param("garageId") Long garageId);
+    
+    // Versions for ETags, cached like the DTO queries; the accessory totals' native updates do not evict them
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT v.version FROM Vehicle v WHERE v.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query(VersionSummaryDTO.SELECT + "FROM Vehicle m WHERE m.garage.id = :garageId")
+    VersionSummaryDTO summarizeVersionsByGarageId(@Param("garageId") Long garageId);
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.garagetest.dto.VehicleDTO(v.id, v.brand, v.model, v.manufacturingYear, v.fuelType, v.garage.id, v.version) FROM Vehicle v WHERE v.modelLower = LOWER(:model)")
+    List<VehicleDTO> findVehicleDtosByModel(@Param("model") String model);
+    
+    @Query(value = "SELECT new com.garagetest.dto.VehicleDTO(v.id, v.brand, v.model, v.manufacturingYear, v.fuelType, v.garage.id, v.version) FROM Vehicle v WHERE v.modelLower = LOWER(:model)",
+            countQuery = "SELECT COUNT(v) FROM Vehicle v WHERE v.modelLower = LOWER(:model)")
+    Page<VehicleDTO> findVehicleDtosByModel(@Param("model") String model, Pageable pageable);
+    
+    // Read from the cursor STREAM_FETCH_SIZE rows at a time; consume inside the caller's transaction
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new com.garagetest.dto.VehicleDTO(v.id, v.brand, v.model, v.manufacturingYear, v.fuelType, v.garage.id, v.version) FROM Vehicle v WHERE v.modelLower = LOWER(:model)")
+    Stream<VehicleDTO> streamVehicleDtosByModel(@Param("model") String model);
+    
+    // Id and version of the given vehicles, for checking the read model against the database
+    @Query("SELECT v.id, v.version FROM Vehicle v WHERE v.id IN :ids")
+    List<Object[]> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // The garage a vehicle belongs to as committed, bypassing the entity caches
+    @Query("SELECT v.garage.id FROM Vehicle v WHERE v.id = :id")
+    Optional<Long> findGarageIdById(@Param("id") Long id);
+    
+    // The vehicles a batch delete removes, read once for their events. The rows stay locked until the
+    // delete commits, so a concurrent move cannot change the garage the events and evictions name;
+    // id order keeps two overlapping batches from deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.garagetest.dto.VehicleDTO(v.id, v.brand, v.model, v.manufacturingYear, v.fuelType, v.garage.id, v.version) FROM Vehicle v WHERE v.id IN :ids ORDER BY v.id")
+    List<VehicleDTO> findVehicleDtosByIdInForUpdate(@Param("ids") Collection<Long> ids);
+    
+    // Bulk deletes: one statement each, no vehicles loaded and no cascade. Hibernate then drops the
+    // whole Vehicle cache region and the garages' vehicle collections; callers delete the accessories first
+    
+    @Modifying
+    @Query("DELETE FROM Vehicle v WHERE v.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("DELETE FROM Vehicle v WHERE v.garage.id = :garageId")
+    int deleteByGarageId(@Param("garageId") Long garageId);
+    
+    // Fill the lowercase search columns of rows written before they existed or by plain SQL
+    @Modifying
+    @Query("UPDATE Vehicle v SET v.brandLower = LOWER(v.brand), v.modelLower = LOWER(v.model), v.fuelTypeLower = LOWER(v.fuelType) "
+            + "WHERE v.brandLower IS NULL OR v.modelLower IS NULL OR v.fuelTypeLower IS NULL")
+    int backfillSearchKeys();
+    
     // Count vehicles in a garage
     long countByGarageId(Long garageId);
-}
\ No newline at end of file
+    
+    // Not cacheable: the accessory totals change through native updates that leave the query cache alone
+    @Query("SELECT new com.garagetest.dto.VehicleStatsDTO(v.id, v.garage.id, v.accessoryCount, v.accessoryValue) FROM Vehicle v WHERE v.id = :id")
+    Optional<VehicleStatsDTO> findVehicleStatsById(@Param("id") Long id);
+    
+    // Move a vehicle's accessory totals by the given amounts
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = ACCESSORY_TOTALS_SPACE))
+    @Query(value = "UPDATE vehicle SET accessory_count = accessory_count + :count, accessory_value = accessory_value + :value WHERE id = :id", nativeQuery = true)
+    int addAccessoryTotals(@Param("id") Long id, @Param("count") int count, @Param("value") BigDecimal value);
+    
+    // Lock every vehicle row in id order, the same order accessory writes take them in
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v.id FROM Vehicle v ORDER BY v.id")
+    List<Long> lockAllIds();
+    
+    // Recompute every vehicle's accessory totals from the accessory table
+    @Modifying
+    @Query("UPDATE Vehicle v SET v.accessoryCount = (SELECT COUNT(a) FROM Accessory a WHERE a.vehicle = v), "
+            + "v.accessoryValue = COALESCE((SELECT SUM(a.price) FROM Accessory a WHERE a.vehicle = v), 0)")
+    int recountAccessoryTotals();
+    
+    // Aggregates for the stats endpoints, largest group first
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.garagetest.dto.StatsCountDTO(v.brandLower, COUNT(v)) FROM Vehicle v GROUP BY v.brandLower ORDER BY COUNT(v) DESC, v.brandLower")
+    List<StatsCountDTO> countVehiclesByBrand();
+    
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.garagetest.dto.StatsCountDTO(v.fuelTypeLower, COUNT(v)) FROM Vehicle v GROUP BY v.fuelTypeLower ORDER BY COUNT(v) DESC, v.fuelTypeLower")
+    List<StatsCountDTO> countVehiclesByFuelType();
+}
@@ -1,17 +1,31 @@
 package com.garagetest.service;
 
 import com.garagetest.dto.AccessoryDTO;
+import com.garagetest.dto.VersionSummaryDTO;
 import com.garagetest.model.Accessory;
+import com.garagetest.model.Garage;
 import com.garagetest.model.Vehicle;
 import com.garagetest.repository.AccessoryRepository;
+import com.garagetest.repository.GarageRepository;
 import com.garagetest.repository.VehicleRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +34,8 @@ public class AccessoryService {
     
     private final AccessoryRepository accessoryRepository;
     private final VehicleRepository vehicleRepository;
+    private final GarageRepository garageRepository;
+    private final EntityCacheEvictor cacheEvictor;
     
     public AccessoryDTO createAccessory(AccessoryDTO accessoryDTO) {
         Vehicle vehicle = vehicleRepository.findById(accessoryDTO.getVehicleId())
@@ -29,6 +45,7 @@ public class AccessoryService {
         accessory.setVehicle(vehicle);
         
         Accessory savedAccessory = accessoryRepository.save(accessory);
+        moveTotals(null, null, vehicle, savedAccessory.getPrice());
         return mapToDTO(savedAccessory);
     }
     
@@ -41,25 +58,60 @@ public class AccessoryService {
     
     @Transactional(readOnly = true)
     public List<AccessoryDTO> getAccessoriesByVehicleId(Long vehicleId) {
-        if (!vehicleRepository.existsById(vehicleId)) {
+        List<AccessoryDTO> accessories = accessoryRepository.findAccessoryDtosByVehicleId(vehicleId);
+        // Only an empty result needs the extra lookup to tell a missing vehicle from one without accessories
+        if (accessories.isEmpty() && !vehicleRepository.existsById(vehicleId)) {
             throw new EntityNotFoundException("Vehicle not found with id: " + vehicleId);
         }
-        
-        return accessoryRepository.findByVehicleId(vehicleId).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return accessories;
+    }
+    
+    // Current versions, looked up without loading the accessories
+    @Transactional(readOnly = true)
+    public long getAccessoryVersion(Long id) {
+        return accessoryRepository.findVersionById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Accessory not found with id: " + id));
+    }
+    
+    @Transactional(readOnly = true)
+    public VersionSummaryDTO getAccessoryVersionsByVehicleId(Long vehicleId) {
+        VersionSummaryDTO versions = accessoryRepository.summarizeVersionsByVehicleId(vehicleId);
+        if (versions.getCount() == 0 && !vehicleRepository.existsById(vehicleId)) {
+            throw new EntityNotFoundException("Vehicle not found with id: " + vehicleId);
+        }
+        return versions;
     }
     
     @Transactional(readOnly = true)
     public List<AccessoryDTO> getAccessoriesByType(String type) {
-        return accessoryRepository.findByTypeIgnoreCase(type).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return accessoryRepository.findAccessoryDtosByType(type);
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<AccessoryDTO> getAccessoriesByType(String type, Pageable pageable) {
+        return accessoryRepository.findAccessoryDtosByType(type, pageable);
+    }
+    
+    // Hands each row to the sink while the cursor is open; memory use does not grow with the result
+    @Transactional(readOnly = true)
+    public void streamAccessoriesByType(String type, Consumer<AccessoryDTO> sink) {
+        try (Stream<AccessoryDTO> accessories = accessoryRepository.streamAccessoryDtosByType(type)) {
+            accessories.forEach(sink);
+        }
     }
     
     public AccessoryDTO updateAccessory(Long id, AccessoryDTO accessoryDTO) {
+        return patchAccessory(id, current -> accessoryDTO);
+    }
+    
+    // Updates the accessory to the DTO that changes makes of its current state, as patchGarage does
+    public AccessoryDTO patchAccessory(Long id, UnaryOperator<AccessoryDTO> changes) {
         Accessory existingAccessory = accessoryRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Accessory not found with id: " + id));
+        AccessoryDTO accessoryDTO = changes.apply(mapToDTO(existingAccessory));
+        Versions.requireCurrent("Accessory", id, existingAccessory.getVersion(), accessoryDTO.getVersion());
+        Vehicle previousVehicle = existingAccessory.getVehicle();
+        BigDecimal previousPrice = existingAccessory.getPrice();
         
         // If vehicle is being changed
         if (!existingAccessory.getVehicle().getId().equals(accessoryDTO.getVehicleId())) {
@@ -74,15 +126,80 @@ public class AccessoryService {
         existingAccessory.setPrice(accessoryDTO.getPrice());
         existingAccessory.setType(accessoryDTO.getType());
         
-        Accessory updatedAccessory = accessoryRepository.save(existingAccessory);
+        // Flush so the returned DTO carries the version this update wrote
+        Accessory updatedAccessory = accessoryRepository.saveAndFlush(existingAccessory);
+        moveTotals(previousVehicle, previousPrice, updatedAccessory.getVehicle(), updatedAccessory.getPrice());
         return mapToDTO(updatedAccessory);
     }
     
     public void deleteAccessory(Long id) {
-        if (!accessoryRepository.existsById(id)) {
-            throw new EntityNotFoundException("Accessory not found with id: " + id);
+        Accessory accessory = accessoryRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Accessory not found with id: " + id));
+        accessoryRepository.delete(accessory);
+        moveTotals(accessory.getVehicle(), accessory.getPrice(), null, null);
+    }
+    
+    // Bring the denormalized accessory totals in line with the accessory table on startup, before the
+    // indexes and the rollup are built. Vehicle rows then garage rows are locked first, in the order
+    // moveTotals takes them, so no addAccessoryTotals in flight is overwritten by a stale sum
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void reconcileAccessoryTotals() {
+        vehicleRepository.lockAllIds();
+        garageRepository.lockAllIds();
+        vehicleRepository.recountAccessoryTotals();
+        garageRepository.recountAccessoryTotals();
+    }
+    
+    // Takes an accessory's price off the vehicle and garage it left and adds its new price to those it
+    // now belongs to; rows are updated in id order so concurrent writers lock them in the same order.
+    // The vehicle rows go first: once they are locked, a garage move of either vehicle has committed or
+    // waits for this transaction, so their garages are read then rather than taken from the entities
+    private void moveTotals(Vehicle from, BigDecimal fromPrice, Vehicle to, BigDecimal toPrice) {
+        Map<Long, Totals> vehicles = new TreeMap<>();
+        Totals removed = from == null ? null : new Totals(-1, fromPrice.negate());
+        Totals added = to == null ? null : new Totals(1, toPrice);
+        if (from != null) {
+            vehicles.merge(from.getId(), removed, Totals::plus);
+        }
+        if (to != null) {
+            vehicles.merge(to.getId(), added, Totals::plus);
+        }
+        vehicles.forEach((vehicleId, totals) -> {
+            if (!totals.isZero()) {
+                vehicleRepository.addAccessoryTotals(vehicleId, totals.count(), totals.value());
+                cacheEvictor.evictAfterCommit(Vehicle.class, vehicleId);
+            }
+        });
+        
+        Map<Long, Totals> garages = new TreeMap<>();
+        if (from != null) {
+            garages.merge(currentGarageId(from), removed, Totals::plus);
+        }
+        if (to != null) {
+            garages.merge(currentGarageId(to), added, Totals::plus);
+        }
+        garages.forEach((garageId, totals) -> {
+            if (!totals.isZero()) {
+                garageRepository.addAccessoryTotals(garageId, totals.count(), totals.value());
+                cacheEvictor.evictAfterCommit(Garage.class, garageId);
+            }
+        });
+    }
+    
+    private Long currentGarageId(Vehicle vehicle) {
+        return vehicleRepository.findGarageIdById(vehicle.getId()).orElse(vehicle.getGarage().getId());
+    }
+    
+    private record Totals(int count, BigDecimal value) {
+        
+        Totals plus(Totals other) {
+            return new Totals(count + other.count, value.add(other.value));
+        }
+        
+        boolean isZero() {
+            return count == 0 && value.signum() == 0;
         }
-        accessoryRepository.deleteById(id);
     }
     
     // Helper methods for mapping between DTO and entity
@@ -94,12 +211,12 @@ public class AccessoryService {
         dto.setPrice(accessory.getPrice());
         dto.setType(accessory.getType());
         dto.setVehicleId(accessory.getVehicle().getId());
+        dto.setVersion(accessory.getVersion());
         return dto;
     }
     
     private Accessory mapToEntity(AccessoryDTO dto) {
         Accessory accessory = new Accessory();
-        accessory.setId(dto.getId());
         accessory.setName(dto.getName());
         accessory.setDescription(dto.getDescription());
         accessory.setPrice(dto.getPrice());
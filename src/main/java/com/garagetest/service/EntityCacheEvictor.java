@@ -0,0 +1,49 @@
+package com.garagetest.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evicts second-level cache entries for rows changed behind Hibernate's back, such as the
+ * garage vehicle counters, which are updated by native statements that leave the cache alone.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityCacheEvictor {
+    
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager entityManager;
+    
+    // Soft-locks the entry until the transaction ends, as Hibernate does for its own updates. A plain
+    // evict after commit is not enough: a reader that loaded the row before the commit would cache
+    // the old row again just after it. The entry is evicted first so the lock goes by transaction start
+    // rather than by version, which these statements do not bump
+    public void evictAfterCommit(Class<?> entityType, Object id) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(entityType);
+        EntityDataAccess cacheAccess = persister.getCacheAccessStrategy();
+        if (cacheAccess == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            entityManagerFactory.getCache().evict(entityType, id);
+            return;
+        }
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        Object key = cacheAccess.generateCacheKey(id, persister, sessionFactory, null);
+        cacheAccess.evict(key);
+        SoftLock lock = cacheAccess.lockItem(session, key, null);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cacheAccess.unlockItem(session, key, lock);
+            }
+        });
+    }
+}
@@ -1,17 +1,42 @@
 package com.garagetest.service;
 
+import com.garagetest.dto.GarageCursor;
 import com.garagetest.dto.GarageDTO;
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.messaging.VehiclePublisher;
 import com.garagetest.model.Garage;
+import com.garagetest.model.OpeningHours;
+import com.garagetest.repository.AccessoryRepository;
 import com.garagetest.repository.GarageRepository;
+import com.garagetest.repository.VehicleRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -19,10 +44,19 @@ import java.util.stream.Collectors;
 public class GarageService {
     
     private final GarageRepository garageRepository;
+    private final VehicleRepository vehicleRepository;
+    private final AccessoryRepository accessoryRepository;
+    private final VehiclePublisher vehiclePublisher;
+    private final VehicleReadModel readModel;
+    private final GarageTextIndex textIndex;
+    private final OpeningHoursIndex openingHoursIndex;
+    private final VehicleStatsRollup statsRollup;
     
     public GarageDTO createGarage(GarageDTO garageDTO) {
         Garage garage = mapToEntity(garageDTO);
         Garage savedGarage = garageRepository.save(garage);
+        textIndex.putAfterCommit(savedGarage.getId(), savedGarage.getName(), savedGarage.getAddress());
+        openingHoursIndex.putAfterCommit(savedGarage.getId(), savedGarage.getOpeningHours());
         return mapToDTO(savedGarage);
     }
     
@@ -33,27 +67,64 @@ public class GarageService {
         return mapToDTO(garage);
     }
     
+    // Current version of the garage, looked up without loading it
+    @Transactional(readOnly = true)
+    public long getGarageVersion(Long id) {
+        return garageRepository.findVersionById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Garage not found with id: " + id));
+    }
+    
     @Transactional(readOnly = true)
     public Page<GarageDTO> getAllGarages(Pageable pageable) {
-        return garageRepository.findAll(pageable)
-                .map(this::mapToDTO);
+        return garageRepository.findGarageDtos(pageable);
     }
     
     @Transactional(readOnly = true)
     public Page<GarageDTO> getGaragesByName(String name, Pageable pageable) {
-        return garageRepository.findByNameContainingIgnoreCase(name, pageable)
-                .map(this::mapToDTO);
+        return fromTextIndex(() -> textIndex.findIdsByName(name), pageable)
+                .orElseGet(() -> garageRepository.findGarageDtosByName(name, pageable));
     }
     
     @Transactional(readOnly = true)
     public Page<GarageDTO> getGaragesByCity(String city, Pageable pageable) {
-        return garageRepository.findByCity(city, pageable)
-                .map(this::mapToDTO);
+        return fromTextIndex(() -> textIndex.findIdsByCity(city), pageable)
+                .orElseGet(() -> garageRepository.findGarageDtosByCity(city, pageable));
+    }
+    
+    // Garages open at the given local date and time, ordered by id
+    @Transactional(readOnly = true)
+    public Page<GarageDTO> getGaragesOpenAt(LocalDateTime at, Pageable pageable) {
+        List<Long> ids = openingHoursIndex.findIdsOpenAt(at).orElseGet(() -> scanGaragesOpenAt(at));
+        return toPage(ids, pageable);
+    }
+    
+    // Keyset variants: ordered by name then id, one extra row tells whether another slice follows
+    @Transactional(readOnly = true)
+    public Slice<GarageDTO> getGaragesAfter(GarageCursor after, int size) {
+        return toSlice(garageRepository.findGarageDtosAfter(after.getName(), after.getId(), Limit.of(size + 1)), size);
+    }
+    
+    @Transactional(readOnly = true)
+    public Slice<GarageDTO> getGaragesByNameAfter(String name, GarageCursor after, int size) {
+        return toSlice(garageRepository.findGarageDtosByNameAfter(name, after.getName(), after.getId(), Limit.of(size + 1)), size);
+    }
+    
+    @Transactional(readOnly = true)
+    public Slice<GarageDTO> getGaragesByCityAfter(String city, GarageCursor after, int size) {
+        return toSlice(garageRepository.findGarageDtosByCityAfter(city, after.getName(), after.getId(), Limit.of(size + 1)), size);
     }
     
     public GarageDTO updateGarage(Long id, GarageDTO garageDTO) {
+        return patchGarage(id, current -> garageDTO);
+    }
+    
+    // Updates the garage to the DTO that changes makes of its current state, within this
+    // transaction; only the columns whose values differ are written
+    public GarageDTO patchGarage(Long id, UnaryOperator<GarageDTO> changes) {
         Garage existingGarage = garageRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Garage not found with id: " + id));
+        GarageDTO garageDTO = changes.apply(mapToDTO(existingGarage));
+        Versions.requireCurrent("Garage", id, existingGarage.getVersion(), garageDTO.getVersion());
         
         existingGarage.setName(garageDTO.getName());
         existingGarage.setAddress(garageDTO.getAddress());
@@ -61,36 +132,136 @@ public class GarageService {
         existingGarage.setEmail(garageDTO.getEmail());
         existingGarage.setOpeningHours(garageDTO.getOpeningHours());
         
-        Garage updatedGarage = garageRepository.save(existingGarage);
+        // Flush so the returned DTO carries the version this update wrote
+        Garage updatedGarage = garageRepository.saveAndFlush(existingGarage);
+        textIndex.putAfterCommit(updatedGarage.getId(), updatedGarage.getName(), updatedGarage.getAddress());
+        openingHoursIndex.putAfterCommit(updatedGarage.getId(), updatedGarage.getOpeningHours());
         return mapToDTO(updatedGarage);
     }
     
+    // Deletes the garage with its vehicles and their accessories in the same few statements, however
+    // many there are. The row lock keeps vehicles from joining or leaving the garage meanwhile, so the
+    // one DTO query gives every deleted vehicle its event and its place in the stats.
+    @Retryable(retryFor = PessimisticLockingFailureException.class, maxAttempts = 3,
+            backoff = @Backoff(delay = 20, multiplier = 2, random = true))
     public void deleteGarage(Long id) {
-        if (!garageRepository.existsById(id)) {
-            throw new EntityNotFoundException("Garage not found with id: " + id);
+        Garage garage = garageRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new EntityNotFoundException("Garage not found with id: " + id));
+        
+        List<VehicleDTO> vehicles = vehicleRepository.findVehicleDtosByGarageId(id);
+        if (!vehicles.isEmpty()) {
+            accessoryRepository.deleteByGarageId(id);
+            vehicleRepository.deleteByGarageId(id);
+            vehicles.forEach(vehicle -> vehiclePublisher.publishVehicleDeleted(vehicle, vehicle.getVersion()));
+            statsRollup.recordAfterCommit(vehicles, List.of());
         }
-        garageRepository.deleteById(id);
+        // The cascade now finds no vehicles, and the cache drops only this garage
+        garageRepository.delete(garage);
+        textIndex.removeAfterCommit(id);
+        openingHoursIndex.removeAfterCommit(id);
+    }
+    
+    // Bring the denormalized vehicle counters in line with the vehicle table on startup, before the
+    // indexes and the rollup are built. Requests may already be arriving, so the garage rows are
+    // locked first: increments in flight commit before the recount reads, later ones wait for it
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void reconcileVehicleCounts() {
+        garageRepository.lockAllIds();
+        garageRepository.recountVehicles();
     }
     
     @Transactional(readOnly = true)
     public List<GarageDTO> getGaragesByVehicleBrand(String brand) {
-        return garageRepository.findByVehicleBrand(brand).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        // The read model knows which garages hold the brand; only those rows are loaded
+        return readModel.findGarageIdsByBrand(brand)
+                .map(garageRepository::findGarageDtosByIdIn)
+                .orElseGet(() -> garageRepository.findGarageDtosByVehicleBrand(brand));
     }
     
     @Transactional(readOnly = true)
     public List<GarageDTO> getGaragesByVehicleModel(String model) {
-        return garageRepository.findByVehicleModel(model).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return garageRepository.findGarageDtosByVehicleModel(model);
     }
     
     @Transactional(readOnly = true)
     public List<GarageDTO> getGaragesByAccessoryType(String accessoryType) {
-        return garageRepository.findByAccessoryType(accessoryType).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return garageRepository.findGarageDtosByAccessoryType(accessoryType);
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<GarageDTO> getGaragesByVehicleBrand(String brand, Pageable pageable) {
+        return garageRepository.findGarageDtosByVehicleBrand(brand, pageable);
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<GarageDTO> getGaragesByVehicleModel(String model, Pageable pageable) {
+        return garageRepository.findGarageDtosByVehicleModel(model, pageable);
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<GarageDTO> getGaragesByAccessoryType(String accessoryType, Pageable pageable) {
+        return garageRepository.findGarageDtosByAccessoryType(accessoryType, pageable);
+    }
+    
+    // Streamed variants hand each row to the sink while the cursor is open, so memory use
+    // does not depend on how many garages match
+    
+    @Transactional(readOnly = true)
+    public void streamGaragesByVehicleBrand(String brand, Consumer<GarageDTO> sink) {
+        try (Stream<GarageDTO> garages = garageRepository.streamGarageDtosByVehicleBrand(brand)) {
+            garages.forEach(sink);
+        }
+    }
+    
+    @Transactional(readOnly = true)
+    public void streamGaragesByVehicleModel(String model, Consumer<GarageDTO> sink) {
+        try (Stream<GarageDTO> garages = garageRepository.streamGarageDtosByVehicleModel(model)) {
+            garages.forEach(sink);
+        }
+    }
+    
+    @Transactional(readOnly = true)
+    public void streamGaragesByAccessoryType(String accessoryType, Consumer<GarageDTO> sink) {
+        try (Stream<GarageDTO> garages = garageRepository.streamGarageDtosByAccessoryType(accessoryType)) {
+            garages.forEach(sink);
+        }
+    }
+    
+    // The text index answers unsorted pages, ordered by id; other orders, and any lookup
+    // before the index is built, go to the database
+    private Optional<Page<GarageDTO>> fromTextIndex(Supplier<Optional<List<Long>>> lookup, Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return Optional.empty();
+        }
+        return lookup.get().map(ids -> toPage(ids, pageable));
+    }
+    
+    // Without the opening hours index every garage's hours are read and checked
+    private List<Long> scanGaragesOpenAt(LocalDateTime at) {
+        try (Stream<Object[]> rows = garageRepository.streamGarageOpeningHours()) {
+            return rows.filter(row -> OpeningHoursIndex.isOpenAt((OpeningHours) row[1], at))
+                    .map(row -> (Long) row[0])
+                    .sorted()
+                    .toList();
+        }
+    }
+    
+    // A page of the given matching ids; only the page's rows are loaded
+    private Page<GarageDTO> toPage(List<Long> ids, Pageable pageable) {
+        List<Long> pageIds = ids;
+        if (pageable.isPaged()) {
+            int from = (int) Math.min(pageable.getOffset(), ids.size());
+            pageIds = ids.subList(from, Math.min(from + pageable.getPageSize(), ids.size()));
+        }
+        List<GarageDTO> content = pageIds.isEmpty() ? new ArrayList<>() : new ArrayList<>(garageRepository.findGarageDtosByIdIn(pageIds));
+        content.sort(Comparator.comparing(GarageDTO::getId));
+        return new PageImpl<>(content, pageable, ids.size());
+    }
+    
+    private Slice<GarageDTO> toSlice(List<GarageDTO> rows, int size) {
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, PageRequest.ofSize(size), hasNext);
     }
     
     // Helper methods for mapping between DTO and entity
@@ -102,12 +273,12 @@ public class GarageService {
         dto.setTelephone(garage.getTelephone());
         dto.setEmail(garage.getEmail());
         dto.setOpeningHours(garage.getOpeningHours());
+        dto.setVersion(garage.getVersion());
         return dto;
     }
     
     private Garage mapToEntity(GarageDTO dto) {
         Garage garage = new Garage();
-        garage.setId(dto.getId());
         garage.setName(dto.getName());
         garage.setAddress(dto.getAddress());
         garage.setTelephone(dto.getTelephone());
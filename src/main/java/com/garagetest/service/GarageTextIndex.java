@@ -0,0 +1,357 @@
+package com.garagetest.service;
+
+import com.garagetest.model.Garage;
+import com.garagetest.repository.GarageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over garage names and addresses, serving the substring name search and
+ * the city search, which no B-tree index can answer without a scan. Every distinct trigram of the
+ * lowercased text maps to a sorted list of document slots; a search intersects the lists of the
+ * term's trigrams and checks the few remaining candidates against the stored text.
+ * <p>
+ * Rebuilt from the database on startup and kept current by GarageService after each commit.
+ * Lookups return empty until the rebuild has finished, and callers then fall back to the database.
+ */
+@Component
+@Slf4j
+public class GarageTextIndex {
+
+    private final GarageRepository garageRepository;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Each indexed garage owns a document slot; slots of deleted garages go on the free list and
+    // are handed to the next new garage, so churn does not grow the arrays
+    private final Map<Long, Integer> docByGarageId = new HashMap<>();
+    private long[] garageIds = new long[1024];
+    private String[] names = new String[1024];
+    private String[] addresses = new String[1024];
+    private int docCount;
+    private int[] freeDocs = new int[16];
+    private int freeCount;
+
+    private final Map<Long, Postings> nameGrams = new HashMap<>();
+    private final Map<Long, Postings> addressGrams = new HashMap<>();
+
+    private volatile boolean ready;
+    // Garages written while a rebuild runs; its older snapshot of them must not win
+    private Set<Long> writtenDuringRebuild;
+
+    public GarageTextIndex(GarageRepository garageRepository,
+                           @Value("${garage.text-index.enabled:true}") boolean enabled) {
+        this.garageRepository = garageRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        write(() -> {
+            ready = false;
+            clear();
+            writtenDuringRebuild = new HashSet<>();
+        });
+        try (Stream<Object[]> rows = garageRepository.streamGarageTexts()) {
+            rows.forEach(row -> write(() -> {
+                Long garageId = (Long) row[0];
+                if (!writtenDuringRebuild.contains(garageId)) {
+                    index(garageId, (String) row[1], (String) row[2]);
+                }
+            }));
+        }
+        write(() -> {
+            writtenDuringRebuild = null;
+            ready = true;
+        });
+        log.info("Garage text index built ({} garages)", size());
+    }
+
+    public void putAfterCommit(Long garageId, String name, String address) {
+        afterCommit(() -> put(garageId, name, address));
+    }
+
+    public void removeAfterCommit(Long garageId) {
+        afterCommit(() -> remove(garageId));
+    }
+
+    void put(Long garageId, String name, String address) {
+        write(() -> {
+            if (writtenDuringRebuild != null) {
+                writtenDuringRebuild.add(garageId);
+            }
+            index(garageId, name, address);
+        });
+    }
+
+    void remove(Long garageId) {
+        write(() -> {
+            if (writtenDuringRebuild != null) {
+                writtenDuringRebuild.add(garageId);
+            }
+            Integer doc = docByGarageId.remove(garageId);
+            if (doc != null) {
+                unindex(doc);
+                garageIds[doc] = 0;
+                if (freeCount == freeDocs.length) {
+                    freeDocs = Arrays.copyOf(freeDocs, freeCount * 2);
+                }
+                freeDocs[freeCount++] = doc;
+            }
+        });
+    }
+
+    // Ids, ascending, of garages whose name contains the term, ignoring case
+    public Optional<List<Long>> findIdsByName(String term) {
+        return search(nameGrams, term, (doc, t) -> names[doc].contains(t));
+    }
+
+    // Ids, ascending, of garages whose city (see Garage.cityOf) starts with the term, ignoring case
+    public Optional<List<Long>> findIdsByCity(String term) {
+        return search(addressGrams, term, (doc, t) -> Garage.cityOf(addresses[doc]).startsWith(t));
+    }
+
+    // Document slots in use or free; stays near the peak garage count
+    int slotCount() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docByGarageId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Optional<List<Long>> search(Map<Long, Postings> index, String term, BiPredicate<Integer, String> matches) {
+        if (!enabled || !ready) {
+            return Optional.empty();
+        }
+        String t = term.toLowerCase(Locale.ROOT);
+        List<Long> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (t.length() < 3) {
+                // Too short to have a trigram: check every garage
+                for (int doc = 0; doc < docCount; doc++) {
+                    if (names[doc] != null && matches.test(doc, t)) {
+                        ids.add(garageIds[doc]);
+                    }
+                }
+            } else {
+                for (int doc : candidates(index, t)) {
+                    if (matches.test(doc, t)) {
+                        ids.add(garageIds[doc]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        ids.sort(null);
+        return Optional.of(ids);
+    }
+
+    // Documents holding every trigram of the term, shortest posting list first
+    private int[] candidates(Map<Long, Postings> index, String term) {
+        List<Postings> lists = new ArrayList<>();
+        for (long gram : trigrams(term)) {
+            Postings postings = index.get(gram);
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).docs, lists.get(0).size);
+        int count = result.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            Postings postings = lists.get(i);
+            int kept = 0;
+            for (int j = 0; j < count; j++) {
+                if (Arrays.binarySearch(postings.docs, 0, postings.size, result[j]) >= 0) {
+                    result[kept++] = result[j];
+                }
+            }
+            count = kept;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private void index(Long garageId, String name, String address) {
+        Integer doc = docByGarageId.get(garageId);
+        if (doc != null) {
+            unindex(doc);
+        } else {
+            doc = newDoc(garageId);
+        }
+        names[doc] = lower(name);
+        addresses[doc] = lower(address);
+        for (long gram : trigrams(names[doc])) {
+            nameGrams.computeIfAbsent(gram, g -> new Postings()).add(doc);
+        }
+        for (long gram : trigrams(addresses[doc])) {
+            addressGrams.computeIfAbsent(gram, g -> new Postings()).add(doc);
+        }
+    }
+
+    private void unindex(int doc) {
+        for (long gram : trigrams(names[doc])) {
+            removePosting(nameGrams, gram, doc);
+        }
+        for (long gram : trigrams(addresses[doc])) {
+            removePosting(addressGrams, gram, doc);
+        }
+        names[doc] = null;
+        addresses[doc] = null;
+    }
+
+    private static void removePosting(Map<Long, Postings> index, long gram, int doc) {
+        Postings postings = index.get(gram);
+        if (postings != null && postings.remove(doc) && postings.size == 0) {
+            index.remove(gram);
+        }
+    }
+
+    private int newDoc(Long garageId) {
+        int doc;
+        if (freeCount > 0) {
+            doc = freeDocs[--freeCount];
+        } else {
+            if (docCount == garageIds.length) {
+                int capacity = docCount * 2;
+                garageIds = Arrays.copyOf(garageIds, capacity);
+                names = Arrays.copyOf(names, capacity);
+                addresses = Arrays.copyOf(addresses, capacity);
+            }
+            doc = docCount++;
+        }
+        garageIds[doc] = garageId;
+        docByGarageId.put(garageId, doc);
+        return doc;
+    }
+
+    private void clear() {
+        docByGarageId.clear();
+        nameGrams.clear();
+        addressGrams.clear();
+        garageIds = new long[1024];
+        names = new String[1024];
+        addresses = new String[1024];
+        docCount = 0;
+        freeDocs = new int[16];
+        freeCount = 0;
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A rolled back write must not reach the index
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    // Distinct trigrams of a lowercased text, three chars packed into one long
+    private static long[] trigrams(String text) {
+        if (text == null || text.length() < 3) {
+            return new long[0];
+        }
+        long[] grams = new long[text.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static String lower(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // Sorted, growable list of document slots. Most adds append; a reused slot lands in the middle
+    // and is placed by binary search
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            int at = size == 0 || docs[size - 1] < doc ? size : Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0 && at < size) {
+                return;
+            }
+            if (at < 0) {
+                at = -at - 1;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, at, docs, at + 1, size - at);
+            docs[at] = doc;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.garagetest.service;
+
+import com.garagetest.model.OpeningHours;
+import com.garagetest.repository.GarageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory interval index answering "which garages are open at minute m of the week".
+ * <p>
+ * Opening hours become half-open minute-of-week intervals, merged per garage. Intervals live in a
+ * centered interval tree over the week: each one sits at the highest node whose center it contains,
+ * in two lists sorted by start and by end. A lookup walks one root-to-leaf path (about 14 nodes)
+ * and at each node reads matching entries off the front of one list until the first miss, so its
+ * cost grows with the number of open garages rather than with the number of garages.
+ * <p>
+ * Rebuilt from the database on startup and kept current by GarageService after each commit;
+ * lookups return empty until the rebuild has finished and callers then fall back to a scan.
+ */
+@Component
+@Slf4j
+public class OpeningHoursIndex {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private final GarageRepository garageRepository;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Tree nodes keyed by their center minute, and each garage's merged intervals for removal
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final Map<Long, int[]> intervalsByGarage = new HashMap<>();
+
+    private volatile boolean ready;
+    // Garages written while a rebuild runs; its older snapshot of them must not win
+    private Set<Long> writtenDuringRebuild;
+
+    public OpeningHoursIndex(GarageRepository garageRepository,
+                             @Value("${garage.opening-hours-index.enabled:true}") boolean enabled) {
+        this.garageRepository = garageRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        write(() -> {
+            ready = false;
+            nodes.clear();
+            intervalsByGarage.clear();
+            writtenDuringRebuild = new HashSet<>();
+        });
+        try (Stream<Object[]> rows = garageRepository.streamGarageOpeningHours()) {
+            rows.forEach(row -> write(() -> {
+                Long garageId = (Long) row[0];
+                if (!writtenDuringRebuild.contains(garageId)) {
+                    index(garageId, intervals((OpeningHours) row[1]));
+                }
+            }));
+        }
+        write(() -> {
+            writtenDuringRebuild = null;
+            ready = true;
+        });
+        log.info("Opening hours index built ({} garages)", size());
+    }
+
+    public void putAfterCommit(Long garageId, OpeningHours openingHours) {
+        int[] intervals = intervals(openingHours);
+        afterCommit(() -> put(garageId, intervals));
+    }
+
+    public void removeAfterCommit(Long garageId) {
+        afterCommit(() -> put(garageId, new int[0]));
+    }
+
+    void put(Long garageId, int[] intervals) {
+        write(() -> {
+            if (writtenDuringRebuild != null) {
+                writtenDuringRebuild.add(garageId);
+            }
+            index(garageId, intervals);
+        });
+    }
+
+    // Ids, ascending, of garages open at the given local date and time
+    public Optional<List<Long>> findIdsOpenAt(LocalDateTime at) {
+        if (!enabled || !ready) {
+            return Optional.empty();
+        }
+        int minute = minuteOfWeek(at.getDayOfWeek(), at.toLocalTime());
+        List<Long> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int lo = 0;
+            int hi = MINUTES_PER_WEEK;
+            while (lo < hi) {
+                int center = (lo + hi) >>> 1;
+                Node node = nodes.get(center);
+                if (minute < center) {
+                    // Every interval here ends after the center; those starting by the minute match
+                    if (node != null) {
+                        for (int i = 0; i < node.byStart.size && minuteOf(node.byStart.keys[i]) <= minute; i++) {
+                            ids.add(garageOf(node.byStart.keys[i]));
+                        }
+                    }
+                    hi = center;
+                } else {
+                    // Every interval here starts by the center; those ending after the minute match
+                    if (node != null) {
+                        for (int i = node.byEnd.size - 1; i >= 0 && minuteOf(node.byEnd.keys[i]) > minute; i--) {
+                            ids.add(garageOf(node.byEnd.keys[i]));
+                        }
+                    }
+                    lo = center + 1;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        ids.sort(null);
+        return Optional.of(ids);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return intervalsByGarage.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Whether the opening hours cover the given local date and time, for callers without the index
+    public static boolean isOpenAt(OpeningHours openingHours, LocalDateTime at) {
+        int minute = minuteOfWeek(at.getDayOfWeek(), at.toLocalTime());
+        int[] intervals = intervals(openingHours);
+        for (int i = 0; i < intervals.length; i += 2) {
+            if (intervals[i] <= minute && minute < intervals[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Opening hours as sorted, merged, half-open minute-of-week intervals [start0, end0, start1, end1, ...].
+    // A time range ending at or before its start runs past midnight; past Sunday it wraps to Monday.
+    static int[] intervals(OpeningHours openingHours) {
+        if (openingHours == null || openingHours.isEmpty()) {
+            return new int[0];
+        }
+        List<int[]> ranges = new ArrayList<>();
+        openingHours.forEachRange((day, startSecond, endSecond) -> {
+            int start = minuteOfWeek(day, startSecond / 60);
+            int end = minuteOfWeek(day, endSecond / 60);
+            if (end <= start) {
+                end += MINUTES_PER_DAY;
+            }
+            if (end > MINUTES_PER_WEEK) {
+                ranges.add(new int[]{start, MINUTES_PER_WEEK});
+                ranges.add(new int[]{0, end - MINUTES_PER_WEEK});
+            } else {
+                ranges.add(new int[]{start, end});
+            }
+        });
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        int[] merged = new int[ranges.size() * 2];
+        int count = 0;
+        for (int[] range : ranges) {
+            if (count > 0 && range[0] <= merged[count - 1]) {
+                merged[count - 1] = Math.max(merged[count - 1], range[1]);
+            } else {
+                merged[count++] = range[0];
+                merged[count++] = range[1];
+            }
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    static int minuteOfWeek(DayOfWeek day, LocalTime time) {
+        return minuteOfWeek(day, time.getHour() * 60 + time.getMinute());
+    }
+
+    private static int minuteOfWeek(DayOfWeek day, int minuteOfDay) {
+        return (day.getValue() - 1) * MINUTES_PER_DAY + minuteOfDay;
+    }
+
+    private void index(Long garageId, int[] intervals) {
+        int[] previous = intervals.length == 0 ? intervalsByGarage.remove(garageId) : intervalsByGarage.put(garageId, intervals);
+        if (previous != null) {
+            for (int i = 0; i < previous.length; i += 2) {
+                Node node = nodes.get(centerOf(previous[i], previous[i + 1]));
+                node.byStart.remove(key(previous[i], garageId));
+                node.byEnd.remove(key(previous[i + 1], garageId));
+                if (node.byStart.size == 0) {
+                    nodes.remove(centerOf(previous[i], previous[i + 1]));
+                }
+            }
+        }
+        for (int i = 0; i < intervals.length; i += 2) {
+            Node node = nodes.computeIfAbsent(centerOf(intervals[i], intervals[i + 1]), center -> new Node());
+            node.byStart.add(key(intervals[i], garageId));
+            node.byEnd.add(key(intervals[i + 1], garageId));
+        }
+    }
+
+    // Center of the highest tree node containing [start, end)
+    private static int centerOf(int start, int end) {
+        int lo = 0;
+        int hi = MINUTES_PER_WEEK;
+        while (true) {
+            int center = (lo + hi) >>> 1;
+            if (end <= center) {
+                hi = center;
+            } else if (start > center) {
+                lo = center + 1;
+            } else {
+                return center;
+            }
+        }
+    }
+
+    // Minute in the high bits so entries sort by minute, then by garage id
+    private static long key(int minute, long garageId) {
+        return ((long) minute << 48) | garageId;
+    }
+
+    private static int minuteOf(long key) {
+        return (int) (key >>> 48);
+    }
+
+    private static long garageOf(long key) {
+        return key & 0xFFFF_FFFF_FFFFL;
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A rolled back write must not reach the index
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private static final class Node {
+        private final SortedKeys byStart = new SortedKeys();
+        private final SortedKeys byEnd = new SortedKeys();
+    }
+
+    // Sorted, growable array of packed (minute, garage id) keys
+    private static final class SortedKeys {
+        private long[] keys = new long[4];
+        private int size;
+
+        void add(long key) {
+            int at = Arrays.binarySearch(keys, 0, size, key);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            System.arraycopy(keys, at, keys, at + 1, size - at);
+            keys[at] = key;
+            size++;
+        }
+
+        void remove(long key) {
+            int at = Arrays.binarySearch(keys, 0, size, key);
+            if (at >= 0) {
+                System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+}
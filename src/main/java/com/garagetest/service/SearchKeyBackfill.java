@@ -0,0 +1,40 @@
+package com.garagetest.service;
+
+import com.garagetest.repository.AccessoryRepository;
+import com.garagetest.repository.GarageRepository;
+import com.garagetest.repository.VehicleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Fills the lowercase search columns (garage city, vehicle brand/model/fuel type, accessory type)
+ * for rows that predate them or were inserted by plain SQL. Entities keep them current on write.
+ * Runs before the other startup listeners, which load in-memory views from these columns.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchKeyBackfill {
+    
+    private final GarageRepository garageRepository;
+    private final VehicleRepository vehicleRepository;
+    private final AccessoryRepository accessoryRepository;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional
+    public void backfill() {
+        int garages = garageRepository.backfillCities();
+        int vehicles = vehicleRepository.backfillSearchKeys();
+        int accessories = accessoryRepository.backfillSearchKeys();
+        if (garages + vehicles + accessories > 0) {
+            log.info("Backfilled search columns of {} garages, {} vehicles and {} accessories", garages, vehicles, accessories);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.GarageStatsDTO;
+import com.garagetest.dto.StatsCountDTO;
+import com.garagetest.dto.VehicleStatsDTO;
+import com.garagetest.repository.GarageRepository;
+import com.garagetest.repository.VehicleRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class StatsService {
+    
+    private final GarageRepository garageRepository;
+    private final VehicleRepository vehicleRepository;
+    private final VehicleStatsRollup rollup;
+    
+    public List<StatsCountDTO> countVehiclesByBrand() {
+        return rollup.countByBrand().orElseGet(vehicleRepository::countVehiclesByBrand);
+    }
+    
+    public List<StatsCountDTO> countVehiclesByFuelType() {
+        return rollup.countByFuelType().orElseGet(vehicleRepository::countVehiclesByFuelType);
+    }
+    
+    // Read from the garages' denormalized counters, so no vehicle or accessory rows are touched
+    public Page<GarageStatsDTO> getGarageStats(Pageable pageable) {
+        return garageRepository.findGarageStats(pageable);
+    }
+    
+    public GarageStatsDTO getGarageStats(Long garageId) {
+        return garageRepository.findGarageStatsById(garageId)
+                .orElseThrow(() -> new EntityNotFoundException("Garage not found with id: " + garageId));
+    }
+    
+    public VehicleStatsDTO getVehicleStats(Long vehicleId) {
+        return vehicleRepository.findVehicleStatsById(vehicleId)
+                .orElseThrow(() -> new EntityNotFoundException("Vehicle not found with id: " + vehicleId));
+    }
+}
@@ -0,0 +1,220 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.messaging.VehicleEvent;
+import com.garagetest.repository.VehicleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory view of all vehicles, indexed by garage, brand, model and fuel type, built from the
+ * vehicle event stream.
+ * <p>
+ * A periodic check compares the view with the database without reading the vehicle table: it looks
+ * up the stored versions of the vehicles whose events arrived since the last check, plus those still
+ * behind then, and compares the row count. A vehicle whose view is behind the database is lag while
+ * its event is in flight, and a fault once the next check still finds the view short of the version
+ * seen before. Lookups answer while there is no fault and at most {@code max-lag} vehicles are behind;
+ * otherwise they return empty and callers fall back to the database.
+ */
+@Component
+@Slf4j
+public class VehicleReadModel {
+    
+    // Ids per version lookup of the consistency check
+    static final int CHECK_CHUNK_SIZE = 500;
+    
+    // State of a vehicle missing from the view or the table, below every version
+    private static final long ABSENT = -1;
+    
+    private final VehicleRepository vehicleRepository;
+    private final boolean enabled;
+    private final int maxLag;
+    
+    private final Map<Long, VehicleDTO> vehicles = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> byGarage = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> byBrand = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> byModel = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> byFuelType = new ConcurrentHashMap<>();
+    
+    // Guarded by this: vehicles applied since the last check, and the stored state each vehicle
+    // found behind at the last check must reach by the next one
+    private Set<Long> touched = new HashSet<>();
+    private Map<Long, Long> behind = new HashMap<>();
+    
+    private volatile boolean consistent;
+    
+    public VehicleReadModel(VehicleRepository vehicleRepository,
+                            @Value("${vehicle.read-model.enabled:true}") boolean enabled,
+                            @Value("${vehicle.read-model.max-lag:100}") int maxLag) {
+        this.vehicleRepository = vehicleRepository;
+        this.enabled = enabled;
+        this.maxLag = maxLag;
+    }
+    
+    public synchronized void apply(VehicleEvent event) {
+        if (!enabled) {
+            return;
+        }
+        VehicleDTO vehicle = event.getVehicle();
+        remove(vehicle.getId());
+        if (event.getEventType() != VehicleEvent.EventType.DELETED) {
+            // The binary encoding carries the version once, on the event
+            vehicle.setVersion(event.getVersion());
+            vehicles.put(vehicle.getId(), vehicle);
+            index(byGarage, vehicle.getGarageId(), vehicle.getId());
+            index(byBrand, key(vehicle.getBrand()), vehicle.getId());
+            index(byModel, key(vehicle.getModel()), vehicle.getId());
+            index(byFuelType, key(vehicle.getFuelType()), vehicle.getId());
+        }
+        touched.add(vehicle.getId());
+    }
+    
+    public Optional<List<VehicleDTO>> findByGarageId(Long garageId) {
+        return lookup(byGarage, garageId);
+    }
+    
+    public Optional<List<VehicleDTO>> findByModel(String model) {
+        return lookup(byModel, key(model));
+    }
+    
+    public Optional<List<VehicleDTO>> findByFuelType(String fuelType) {
+        return lookup(byFuelType, key(fuelType));
+    }
+    
+    public Optional<Set<Long>> findGarageIdsByBrand(String brand) {
+        return lookup(byBrand, key(brand))
+                .map(list -> list.stream().map(VehicleDTO::getGarageId).collect(Collectors.toSet()));
+    }
+    
+    public boolean isConsistent() {
+        return consistent;
+    }
+    
+    // Compare the view with the database; lookups are served only while it holds
+    @Scheduled(initialDelayString = "${vehicle.read-model.check-interval-ms:30000}",
+            fixedDelayString = "${vehicle.read-model.check-interval-ms:30000}")
+    @Transactional(readOnly = true)
+    public void checkConsistency() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> ids;
+        synchronized (this) {
+            Set<Long> pending = new TreeSet<>(touched);
+            pending.addAll(behind.keySet());
+            touched = new HashSet<>();
+            ids = new ArrayList<>(pending);
+        }
+        Map<Long, Long> stored = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += CHECK_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHECK_CHUNK_SIZE, ids.size()));
+            for (Object[] row : vehicleRepository.findVersionsByIdIn(chunk)) {
+                stored.put((Long) row[0], (Long) row[1]);
+            }
+        }
+        verify(ids, stored, vehicleRepository.count());
+    }
+    
+    synchronized boolean verify(Collection<Long> ids, Map<Long, Long> stored, long storedCount) {
+        Map<Long, Long> stillBehind = new HashMap<>();
+        long faults = 0;
+        for (Long id : ids) {
+            long expected = stored.getOrDefault(id, ABSENT);
+            long actual = state(id);
+            if (actual == expected) {
+                continue;
+            }
+            Long target = behind.get(id);
+            if (target != null && !reached(actual, target)) {
+                faults++;
+            }
+            stillBehind.put(id, expected);
+        }
+        behind = stillBehind;
+        
+        // Creates and deletes whose events have not arrived, and any the version lookups cannot see
+        long lag = Math.max(behind.size(), Math.abs(storedCount - vehicles.size()));
+        boolean serving = faults == 0 && lag <= maxLag;
+        if (faults > 0) {
+            log.warn("Vehicle read model missed the events of {} vehicles, serving reads from database", faults);
+        } else if (!serving) {
+            log.warn("Vehicle read model is {} vehicles behind the database, serving reads from database", lag);
+        } else if (!consistent) {
+            log.info("Vehicle read model consistent with database ({} vehicles, {} behind)", vehicles.size(), lag);
+        }
+        consistent = serving;
+        return consistent;
+    }
+    
+    // Version of the vehicle in the view; unversioned events predate versioning and count as version 0
+    private long state(Long id) {
+        VehicleDTO vehicle = vehicles.get(id);
+        if (vehicle == null) {
+            return ABSENT;
+        }
+        return vehicle.getVersion() == null ? 0 : vehicle.getVersion();
+    }
+    
+    // Whether the view has caught up with a stored state; a deleted row cannot come back
+    private static boolean reached(long actual, long target) {
+        return target == ABSENT ? actual == ABSENT : actual >= target;
+    }
+    
+    private Optional<List<VehicleDTO>> lookup(Map<?, Set<Long>> index, Object key) {
+        if (!enabled || !consistent) {
+            return Optional.empty();
+        }
+        return Optional.of(index.getOrDefault(key, Set.of()).stream()
+                .map(vehicles::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+    
+    private void remove(Long vehicleId) {
+        VehicleDTO previous = vehicles.remove(vehicleId);
+        if (previous != null) {
+            unindex(byGarage, previous.getGarageId(), vehicleId);
+            unindex(byBrand, key(previous.getBrand()), vehicleId);
+            unindex(byModel, key(previous.getModel()), vehicleId);
+            unindex(byFuelType, key(previous.getFuelType()), vehicleId);
+        }
+    }
+    
+    private static <K> void index(Map<K, Set<Long>> index, K key, Long vehicleId) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(vehicleId);
+        }
+    }
+    
+    private static <K> void unindex(Map<K, Set<Long>> index, K key, Long vehicleId) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, ids) -> {
+                ids.remove(vehicleId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+    
+    // Matches the lowercase search columns the repository queries compare against
+    private static String key(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
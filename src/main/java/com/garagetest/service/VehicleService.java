@@ -1,36 +1,73 @@
 package com.garagetest.service;
 
+import com.garagetest.dto.VehicleBatchResultDTO;
 import com.garagetest.dto.VehicleDTO;
+import com.garagetest.dto.VersionSummaryDTO;
+import com.garagetest.exception.GarageCapacityExceededException;
+import com.garagetest.exception.InvalidRequestException;
 import com.garagetest.messaging.VehiclePublisher;
 import com.garagetest.model.Garage;
 import com.garagetest.model.Vehicle;
+import com.garagetest.repository.AccessoryRepository;
 import com.garagetest.repository.GarageRepository;
 import com.garagetest.repository.VehicleRepository;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class VehicleService {
     
+    // Largest batch create or delete, matching the outbox and consumer batches
+    public static final int MAX_BATCH = 500;
+    
     private final VehicleRepository vehicleRepository;
+    private final AccessoryRepository accessoryRepository;
     private final GarageRepository garageRepository;
     private final VehiclePublisher vehiclePublisher;
+    private final Validator validator;
+    private final VehicleReadModel readModel;
+    private final EntityCacheEvictor cacheEvictor;
+    private final VehicleStatsRollup statsRollup;
     
+    // Slot reservation write-locks the garage row; a writer that times out waiting
+    // for that lock gets a fresh transaction instead of failing the request
+    @Retryable(retryFor = PessimisticLockingFailureException.class, maxAttempts = 3,
+            backoff = @Backoff(delay = 20, multiplier = 2, random = true))
     public VehicleDTO createVehicle(VehicleDTO vehicleDTO) {
         Garage garage = garageRepository.findById(vehicleDTO.getGarageId())
                 .orElseThrow(() -> new EntityNotFoundException("Garage not found with id: " + vehicleDTO.getGarageId()));
         
-        // Check if garage can add more vehicles (max 50)
-        if (!garage.canAddVehicle()) {
-            throw new IllegalStateException("Garage has reached maximum capacity of 50 vehicles");
+        // Reserve a slot in the garage (max 50) without loading its vehicles
+        if (garageRepository.incrementVehicleCount(garage.getId(), Garage.MAX_VEHICLES) == 0) {
+            throw new GarageCapacityExceededException();
         }
+        cacheEvictor.evictAfterCommit(Garage.class, garage.getId());
         
         Vehicle vehicle = mapToEntity(vehicleDTO);
         vehicle.setGarage(garage);
@@ -39,11 +76,81 @@ public class VehicleService {
         VehicleDTO savedVehicleDTO = mapToDTO(savedVehicle);
         
         // Publish vehicle created event
-        vehiclePublisher.publishVehicleCreated(savedVehicleDTO);
+        vehiclePublisher.publishVehicleCreated(savedVehicleDTO, savedVehicle.getVersion());
+        statsRollup.recordAfterCommit(List.of(), List.of(savedVehicleDTO));
         
         return savedVehicleDTO;
     }
     
+    // Bulk import: one lookup and one slot reservation per garage, inserts batched by Hibernate.
+    // Invalid rows and rows over a garage's capacity are rejected individually. A batch holds at
+    // most MAX_BATCH rows, which bounds the transaction and the events it writes.
+    @Retryable(retryFor = PessimisticLockingFailureException.class, maxAttempts = 3,
+            backoff = @Backoff(delay = 20, multiplier = 2, random = true))
+    public List<VehicleBatchResultDTO> createVehicles(List<VehicleDTO> vehicleDTOs) {
+        if (vehicleDTOs.size() > MAX_BATCH) {
+            throw new InvalidRequestException("At most " + MAX_BATCH + " vehicles can be created at once");
+        }
+        VehicleBatchResultDTO[] results = new VehicleBatchResultDTO[vehicleDTOs.size()];
+        
+        // Sorted by garage id so concurrent batches lock garages in the same order
+        Map<Long, List<Integer>> rowsByGarage = new TreeMap<>();
+        for (int i = 0; i < vehicleDTOs.size(); i++) {
+            VehicleDTO vehicleDTO = vehicleDTOs.get(i);
+            String error = validate(vehicleDTO);
+            if (error != null) {
+                results[i] = VehicleBatchResultDTO.rejected(i, error);
+            } else {
+                rowsByGarage.computeIfAbsent(vehicleDTO.getGarageId(), garageId -> new ArrayList<>()).add(i);
+            }
+        }
+        
+        List<Vehicle> vehicles = new ArrayList<>();
+        List<Integer> vehicleRows = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> entry : rowsByGarage.entrySet()) {
+            Long garageId = entry.getKey();
+            List<Integer> rows = entry.getValue();
+            
+            Optional<Garage> garage = garageRepository.findByIdForUpdate(garageId);
+            if (garage.isEmpty()) {
+                rows.forEach(row -> results[row] = VehicleBatchResultDTO.rejected(row, "Garage not found with id: " + garageId));
+                continue;
+            }
+            
+            int admitted = Math.min(rows.size(), Math.max(0, Garage.MAX_VEHICLES - garage.get().getVehicleCount()));
+            if (admitted > 0) {
+                garageRepository.addVehicleCount(garageId, admitted);
+                cacheEvictor.evictAfterCommit(Garage.class, garageId);
+            }
+            
+            for (int j = 0; j < rows.size(); j++) {
+                int row = rows.get(j);
+                if (j < admitted) {
+                    Vehicle vehicle = mapToEntity(vehicleDTOs.get(row));
+                    vehicle.setGarage(garage.get());
+                    vehicles.add(vehicle);
+                    vehicleRows.add(row);
+                } else {
+                    results[row] = VehicleBatchResultDTO.rejected(row, GarageCapacityExceededException.MESSAGE);
+                }
+            }
+        }
+        
+        List<Vehicle> savedVehicles = vehicleRepository.saveAll(vehicles);
+        List<VehicleDTO> savedVehicleDTOs = new ArrayList<>();
+        for (int k = 0; k < savedVehicles.size(); k++) {
+            int row = vehicleRows.get(k);
+            Vehicle savedVehicle = savedVehicles.get(k);
+            VehicleDTO savedVehicleDTO = mapToDTO(savedVehicle);
+            results[row] = VehicleBatchResultDTO.created(row, savedVehicleDTO);
+            savedVehicleDTOs.add(savedVehicleDTO);
+            vehiclePublisher.publishVehicleCreated(savedVehicleDTO, savedVehicle.getVersion());
+        }
+        statsRollup.recordAfterCommit(List.of(), savedVehicleDTOs);
+        
+        return Arrays.asList(results);
+    }
+    
     @Transactional(readOnly = true)
     public VehicleDTO getVehicleById(Long id) {
         Vehicle vehicle = vehicleRepository.findById(id)
@@ -53,36 +160,70 @@ public class VehicleService {
     
     @Transactional(readOnly = true)
     public List<VehicleDTO> getVehiclesByGarageId(Long garageId) {
-        if (!garageRepository.existsById(garageId)) {
+        List<VehicleDTO> vehicles = vehicleRepository.findVehicleDtosByGarageId(garageId);
+        // Only an empty result needs the extra lookup to tell a missing garage from an empty one
+        if (vehicles.isEmpty() && !garageRepository.existsById(garageId)) {
             throw new EntityNotFoundException("Garage not found with id: " + garageId);
         }
-        
-        return vehicleRepository.findByGarageId(garageId).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return vehicles;
+    }
+    
+    // Current versions, looked up without loading the vehicles
+    @Transactional(readOnly = true)
+    public long getVehicleVersion(Long id) {
+        return vehicleRepository.findVersionById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Vehicle not found with id: " + id));
+    }
+    
+    @Transactional(readOnly = true)
+    public VersionSummaryDTO getVehicleVersionsByGarageId(Long garageId) {
+        VersionSummaryDTO versions = vehicleRepository.summarizeVersionsByGarageId(garageId);
+        if (versions.getCount() == 0 && !garageRepository.existsById(garageId)) {
+            throw new EntityNotFoundException("Garage not found with id: " + garageId);
+        }
+        return versions;
     }
     
     @Transactional(readOnly = true)
     public List<VehicleDTO> getVehiclesByModel(String model) {
-        return vehicleRepository.findAllByModel(model).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return readModel.findByModel(model)
+                .orElseGet(() -> vehicleRepository.findVehicleDtosByModel(model));
     }
     
+    @Transactional(readOnly = true)
+    public Page<VehicleDTO> getVehiclesByModel(String model, Pageable pageable) {
+        return vehicleRepository.findVehicleDtosByModel(model, pageable);
+    }
+    
+    // Hands each row to the sink while the cursor is open; memory use does not grow with the result
+    @Transactional(readOnly = true)
+    public void streamVehiclesByModel(String model, Consumer<VehicleDTO> sink) {
+        try (Stream<VehicleDTO> vehicles = vehicleRepository.streamVehicleDtosByModel(model)) {
+            vehicles.forEach(sink);
+        }
+    }
+    
+    @Retryable(retryFor = PessimisticLockingFailureException.class, maxAttempts = 3,
+            backoff = @Backoff(delay = 20, multiplier = 2, random = true))
     public VehicleDTO updateVehicle(Long id, VehicleDTO vehicleDTO) {
+        return patchVehicle(id, current -> vehicleDTO);
+    }
+    
+    // Updates the vehicle to the DTO that changes makes of its current state, as patchGarage does
+    @Retryable(retryFor = PessimisticLockingFailureException.class, maxAttempts = 3,
+            backoff = @Backoff(delay = 20, multiplier = 2, random = true))
+    public VehicleDTO patchVehicle(Long id, UnaryOperator<VehicleDTO> changes) {
         Vehicle existingVehicle = vehicleRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Vehicle not found with id: " + id));
+        VehicleDTO previousVehicleDTO = mapToDTO(existingVehicle);
+        VehicleDTO vehicleDTO = changes.apply(mapToDTO(existingVehicle));
+        Versions.requireCurrent("Vehicle", id, existingVehicle.getVersion(), vehicleDTO.getVersion());
         
-        // If garage is being changed, check if new garage can accept more vehicles
-        if (!existingVehicle.getGarage().getId().equals(vehicleDTO.getGarageId())) {
-            Garage newGarage = garageRepository.findById(vehicleDTO.getGarageId())
-                    .orElseThrow(() -> new EntityNotFoundException("Garage not found with id: " + vehicleDTO.getGarageId()));
-            
-            if (!newGarage.canAddVehicle()) {
-                throw new IllegalStateException("New garage has reached maximum capacity of 50 vehicles");
-            }
-            
-            existingVehicle.setGarage(newGarage);
+        Long previousGarageId = existingVehicle.getGarage().getId();
+        boolean moved = !previousGarageId.equals(vehicleDTO.getGarageId());
+        if (moved) {
+            existingVehicle.setGarage(garageRepository.findById(vehicleDTO.getGarageId())
+                    .orElseThrow(() -> new EntityNotFoundException("Garage not found with id: " + vehicleDTO.getGarageId())));
         }
         
         existingVehicle.setBrand(vehicleDTO.getBrand());
@@ -90,11 +231,30 @@ public class VehicleService {
         existingVehicle.setManufacturingYear(vehicleDTO.getManufacturingYear());
         existingVehicle.setFuelType(vehicleDTO.getFuelType());
         
-        Vehicle updatedVehicle = vehicleRepository.save(existingVehicle);
+        // Flush so the event carries the version this update wrote. The update also takes the vehicle
+        // row lock before any garage row, the order accessory writers and the startup recount use
+        Vehicle updatedVehicle = vehicleRepository.saveAndFlush(existingVehicle);
         VehicleDTO updatedVehicleDTO = mapToDTO(updatedVehicle);
         
+        if (moved) {
+            // Check the new garage can accept more vehicles; a full garage rolls the update back
+            Long newGarageId = updatedVehicleDTO.getGarageId();
+            if (garageRepository.incrementVehicleCount(newGarageId, Garage.MAX_VEHICLES) == 0) {
+                throw new GarageCapacityExceededException("New garage has reached maximum capacity of " + Garage.MAX_VEHICLES + " vehicles");
+            }
+            garageRepository.decrementVehicleCount(previousGarageId);
+            cacheEvictor.evictAfterCommit(Garage.class, newGarageId);
+            cacheEvictor.evictAfterCommit(Garage.class, previousGarageId);
+            
+            // The vehicle's accessories move with it. With the vehicle row locked, no accessory
+            // writer can slip in between these reads of the vehicle's totals and the commit
+            garageRepository.addVehicleAccessoryTotals(newGarageId, id);
+            garageRepository.subtractVehicleAccessoryTotals(previousGarageId, id);
+        }
+        
         // Publish vehicle updated event
-        vehiclePublisher.publishVehicleUpdated(updatedVehicleDTO);
+        vehiclePublisher.publishVehicleUpdated(updatedVehicleDTO, updatedVehicle.getVersion());
+        statsRollup.recordAfterCommit(List.of(previousVehicleDTO), List.of(updatedVehicleDTO));
         
         return updatedVehicleDTO;
     }
@@ -106,11 +266,69 @@ public class VehicleService {
         // Get the DTO before deleting for the event
         VehicleDTO vehicleDTO = mapToDTO(vehicle);
         
-        // Delete the vehicle
-        vehicleRepository.deleteById(id);
+        // Delete the vehicle, its accessories with it, and release its garage slot
+        garageRepository.subtractVehicleAccessoryTotals(vehicleDTO.getGarageId(), id);
+        vehicleRepository.delete(vehicle);
+        garageRepository.decrementVehicleCount(vehicleDTO.getGarageId());
+        cacheEvictor.evictAfterCommit(Garage.class, vehicleDTO.getGarageId());
         
         // Publish vehicle deleted event
-        vehiclePublisher.publishVehicleDeleted(vehicleDTO);
+        vehiclePublisher.publishVehicleDeleted(vehicleDTO, vehicle.getVersion());
+        statsRollup.recordAfterCommit(List.of(vehicleDTO), List.of());
+    }
+    
+    // Batch delete in a fixed number of statements: the vehicles are locked and read once as DTOs, for
+    // their events, the stats and the garages to evict, then removed with their accessories by bulk
+    // deletes. Every id must exist, or nothing is deleted. A batch holds at most MAX_BATCH
+    // distinct ids, which bounds the IN lists and the rows locked at once.
+    @Retryable(retryFor = PessimisticLockingFailureException.class, maxAttempts = 3,
+            backoff = @Backoff(delay = 20, multiplier = 2, random = true))
+    public void deleteVehicles(Collection<Long> ids) {
+        Set<Long> vehicleIds = new TreeSet<>(ids);
+        if (vehicleIds.isEmpty()) {
+            return;
+        }
+        if (vehicleIds.size() > MAX_BATCH) {
+            throw new InvalidRequestException("At most " + MAX_BATCH + " vehicles can be deleted at once");
+        }
+        List<VehicleDTO> vehicles = vehicleRepository.findVehicleDtosByIdInForUpdate(vehicleIds);
+        if (vehicles.size() != vehicleIds.size()) {
+            Set<Long> missing = new TreeSet<>(vehicleIds);
+            vehicles.forEach(vehicle -> missing.remove(vehicle.getId()));
+            throw new EntityNotFoundException("Vehicles not found with ids: " + missing);
+        }
+        
+        // Release the garage slots and accessory totals while the rows still hold them
+        garageRepository.subtractVehicles(vehicleIds);
+        accessoryRepository.deleteByVehicleIdIn(vehicleIds);
+        if (vehicleRepository.deleteByIdIn(vehicleIds) != vehicles.size()) {
+            throw new OptimisticLockingFailureException("Vehicles were deleted concurrently: " + vehicleIds);
+        }
+        vehicles.stream()
+                .map(VehicleDTO::getGarageId)
+                .distinct()
+                .forEach(garageId -> cacheEvictor.evictAfterCommit(Garage.class, garageId));
+        
+        vehicles.forEach(vehicle -> vehiclePublisher.publishVehicleDeleted(vehicle, vehicle.getVersion()));
+        statsRollup.recordAfterCommit(vehicles, List.of());
+    }
+    
+    // Bean validation for rows that did not pass through @Valid
+    private String validate(VehicleDTO vehicleDTO) {
+        if (vehicleDTO == null) {
+            return "Vehicle is required";
+        }
+        Set<ConstraintViolation<VehicleDTO>> violations = validator.validate(vehicleDTO);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        if (vehicleDTO.getGarageId() == null) {
+            return "Garage id is required";
+        }
+        return null;
     }
     
     // Helper methods for mapping between DTO and entity
@@ -122,6 +340,7 @@ public class VehicleService {
         dto.setManufacturingYear(vehicle.getManufacturingYear());
         dto.setFuelType(vehicle.getFuelType());
         dto.setGarageId(vehicle.getGarage().getId());
+        dto.setVersion(vehicle.getVersion());
         return dto;
     }
     
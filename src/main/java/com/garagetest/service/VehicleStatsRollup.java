@@ -0,0 +1,196 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.StatsCountDTO;
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.repository.VehicleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Vehicle counts per brand and per fuel type, kept in memory so the stats endpoints do not
+ * query the database. Loaded with the grouped queries on startup, after the search key backfill,
+ * then moved by the vehicle write paths as each transaction commits. Each instance only sees its
+ * own writes, so the counts are also reloaded periodically to pick up the others.
+ * <p>
+ * Counters cannot tell whether a write is already part of a query result, so a reload is only
+ * kept when no write committed while it ran. Until a reload succeeds, lookups return empty and
+ * callers use the grouped queries; the next lookup tries again.
+ */
+@Component
+@Slf4j
+public class VehicleStatsRollup {
+
+    private static final Comparator<StatsCountDTO> LARGEST_FIRST = Comparator.comparingLong(StatsCountDTO::getCount)
+            .reversed()
+            .thenComparing(StatsCountDTO::getKey, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final VehicleRepository vehicleRepository;
+    private final boolean enabled;
+
+    // Guarded by this
+    private final Map<String, Long> byBrand = new HashMap<>();
+    private final Map<String, Long> byFuelType = new HashMap<>();
+    private boolean ready;
+    // Transactions that have passed their commit point but not yet applied their counts,
+    // and the number of transactions that completed so far
+    private int inFlight;
+    private long completed;
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    public VehicleStatsRollup(VehicleRepository vehicleRepository,
+                              @Value("${vehicle.stats-rollup.enabled:true}") boolean enabled) {
+        this.vehicleRepository = vehicleRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    @Scheduled(initialDelayString = "${vehicle.stats-rollup.rebuild-interval-ms:300000}",
+            fixedDelayString = "${vehicle.stats-rollup.rebuild-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (enabled && reload()) {
+            log.debug("Vehicle stats rollup built ({} brands, {} fuel types)", byBrand.size(), byFuelType.size());
+        }
+    }
+
+    public Optional<List<StatsCountDTO>> countByBrand() {
+        return lookup(byBrand);
+    }
+
+    public Optional<List<StatsCountDTO>> countByFuelType() {
+        return lookup(byFuelType);
+    }
+
+    // Moves the counts once the current transaction commits; removed and added may both hold
+    // the same vehicle, before and after an update
+    public void recordAfterCommit(Collection<VehicleDTO> removed, Collection<VehicleDTO> added) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (this) {
+                apply(removed, added);
+                completed++;
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean committing;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                synchronized (VehicleStatsRollup.this) {
+                    inFlight++;
+                    committing = true;
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (VehicleStatsRollup.this) {
+                    if (status == STATUS_COMMITTED) {
+                        apply(removed, added);
+                    }
+                    if (committing) {
+                        inFlight--;
+                    }
+                    completed++;
+                }
+            }
+        });
+    }
+
+    private Optional<List<StatsCountDTO>> lookup(Map<String, Long> counts) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            if (ready) {
+                return Optional.of(sorted(counts));
+            }
+        }
+        // One caller reloads; the others use the database meanwhile
+        if (reload()) {
+            synchronized (this) {
+                return Optional.of(sorted(counts));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private boolean reload() {
+        if (!reloading.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            long completedBefore;
+            synchronized (this) {
+                if (inFlight > 0) {
+                    return false;
+                }
+                completedBefore = completed;
+            }
+            List<StatsCountDTO> brands = vehicleRepository.countVehiclesByBrand();
+            List<StatsCountDTO> fuelTypes = vehicleRepository.countVehiclesByFuelType();
+            synchronized (this) {
+                if (inFlight > 0 || completed != completedBefore) {
+                    return false;
+                }
+                byBrand.clear();
+                byFuelType.clear();
+                brands.forEach(count -> byBrand.put(count.getKey(), count.getCount()));
+                fuelTypes.forEach(count -> byFuelType.put(count.getKey(), count.getCount()));
+                ready = true;
+                return true;
+            }
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    private void apply(Collection<VehicleDTO> removed, Collection<VehicleDTO> added) {
+        if (!ready) {
+            return;
+        }
+        for (VehicleDTO vehicle : removed) {
+            add(byBrand, vehicle.getBrand(), -1);
+            add(byFuelType, vehicle.getFuelType(), -1);
+        }
+        for (VehicleDTO vehicle : added) {
+            add(byBrand, vehicle.getBrand(), 1);
+            add(byFuelType, vehicle.getFuelType(), 1);
+        }
+    }
+
+    private static void add(Map<String, Long> counts, String value, long delta) {
+        String key = value == null ? null : value.toLowerCase(Locale.ROOT);
+        counts.merge(key, delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+
+    private static List<StatsCountDTO> sorted(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .map(entry -> new StatsCountDTO(entry.getKey(), entry.getValue()))
+                .sorted(LARGEST_FIRST)
+                .toList();
+    }
+}
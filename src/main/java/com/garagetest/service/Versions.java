@@ -0,0 +1,19 @@
+package com.garagetest.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+// Optimistic concurrency for the update paths. A version sent by the client must still be the
+// entity's current one; Hibernate compares it again in the UPDATE's WHERE clause on flush, which
+// catches a commit landing between this check and the write.
+final class Versions {
+    
+    private Versions() {
+    }
+    
+    static void requireCurrent(String entityName, Long id, Long currentVersion, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new OptimisticLockingFailureException(entityName + " with id: " + id + " is at version "
+                    + currentVersion + ", not " + expectedVersion);
+        }
+    }
+}
@@ -121,4 +121,7 @@ INSERT INTO accessory (id, name, description, price, type, vehicle_id)
 VALUES (7, 'Home Charging Station', 'Level 2 home charging station', 899.99, 'Electronics', 6);
 
 INSERT INTO accessory (id, name, description, price, type, vehicle_id)
-VALUES (8, 'Winter Tire Set', 'Set of 4 premium winter tires', 650.00, 'Exterior', 7);
\ No newline at end of file
+VALUES (8, 'Winter Tire Set', 'Set of 4 premium winter tires', 650.00, 'Exterior', 7);
+
+-- Move the vehicle id sequence past the explicit ids above
+ALTER SEQUENCE vehicle_seq RESTART WITH 1000;
@@ -1,8 +1,10 @@
 package com.garagetest.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.garagetest.dto.GarageDTO;
 import com.garagetest.model.Garage;
+import com.garagetest.model.OpeningHours;
 import com.garagetest.model.OpeningTime;
 import com.garagetest.repository.GarageRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -24,9 +27,13 @@ import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -45,6 +52,9 @@ public class GarageControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private GarageDTO garageDTO;
 
     @BeforeEach
@@ -83,7 +93,7 @@ public class GarageControllerIntegrationTest {
         garageDTO.setAddress("123 Test Street, Test City");
         garageDTO.setTelephone("123-456-7890");
         garageDTO.setEmail("test@garage.com");
-        garageDTO.setOpeningHours(openingHours);
+        garageDTO.setOpeningHours(OpeningHours.of(openingHours));
     }
 
     @Test
@@ -128,6 +138,39 @@ public class GarageControllerIntegrationTest {
                 .andExpect(jsonPath("$.email", is(persistedGarage.getEmail())));
     }
 
+    @Test
+    void getGarageById_ShouldReturn304_UntilTheGarageChanges() throws Exception {
+        // Arrange
+        Garage savedGarage = new Garage();
+        savedGarage.setName(garageDTO.getName());
+        savedGarage.setAddress(garageDTO.getAddress());
+        savedGarage.setTelephone(garageDTO.getTelephone());
+        savedGarage.setEmail(garageDTO.getEmail());
+        savedGarage.setOpeningHours(garageDTO.getOpeningHours());
+        
+        Garage persistedGarage = garageRepository.save(savedGarage);
+        String etag = mockMvc.perform(get("/api/garages/{id}", persistedGarage.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert: unchanged, so no body
+        mockMvc.perform(get("/api/garages/{id}", persistedGarage.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        // An update moves the version on
+        garageDTO.setName("Renamed Garage");
+        mockMvc.perform(put("/api/garages/{id}", persistedGarage.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(garageDTO)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/garages/{id}", persistedGarage.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.name", is("Renamed Garage")));
+    }
+
     @Test
     void getGarageById_ShouldReturn404_WhenGarageDoesNotExist() throws Exception {
         // Act
@@ -198,6 +241,100 @@ public class GarageControllerIntegrationTest {
                 .andExpect(jsonPath("$.address", is("Updated Address")));
     }
 
+    @Test
+    void updateGarage_ShouldRejectStaleVersions() throws Exception {
+        // Arrange: two editors read version 0
+        Garage savedGarage = new Garage();
+        savedGarage.setName(garageDTO.getName());
+        savedGarage.setAddress(garageDTO.getAddress());
+        savedGarage.setTelephone(garageDTO.getTelephone());
+        savedGarage.setEmail(garageDTO.getEmail());
+        savedGarage.setOpeningHours(garageDTO.getOpeningHours());
+        
+        Garage persistedGarage = garageRepository.save(savedGarage);
+        String etag = mockMvc.perform(get("/api/garages/{id}", persistedGarage.getId()))
+                .andExpect(jsonPath("$.version", is(0)))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert: the first update wins and returns the new version
+        garageDTO.setName("First Edit");
+        mockMvc.perform(put("/api/garages/{id}", persistedGarage.getId())
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(garageDTO)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.version", is(1)));
+
+        // The second, still on version 0, is refused whether the version comes as If-Match or in the body
+        garageDTO.setName("Second Edit");
+        mockMvc.perform(put("/api/garages/{id}", persistedGarage.getId())
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(garageDTO)))
+                .andExpect(status().isPreconditionFailed());
+        garageDTO.setVersion(0L);
+        mockMvc.perform(put("/api/garages/{id}", persistedGarage.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(garageDTO)))
+                .andExpect(status().isConflict());
+
+        // "If-Match: *" accepts whatever version is current
+        mockMvc.perform(put("/api/garages/{id}", persistedGarage.getId())
+                        .header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(garageDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("Second Edit")))
+                .andExpect(jsonPath("$.version", is(2)));
+    }
+
+    @Test
+    void patchGarage_ShouldChangeOnlyTheMembersSent() throws Exception {
+        // Arrange: opening hours stored in the legacy layout, which a full-row update would rewrite
+        Garage savedGarage = new Garage();
+        savedGarage.setName(garageDTO.getName());
+        savedGarage.setAddress(garageDTO.getAddress());
+        savedGarage.setTelephone(garageDTO.getTelephone());
+        savedGarage.setEmail(garageDTO.getEmail());
+        savedGarage.setOpeningHours(garageDTO.getOpeningHours());
+        
+        Garage persistedGarage = garageRepository.saveAndFlush(savedGarage);
+        String legacyHours = "{\"MONDAY\":[{\"startTime\":[9,0],\"endTime\":[18,0]}]}";
+        jdbcTemplate.update("UPDATE garage SET opening_hours = ? FORMAT JSON WHERE id = ?", legacyHours, persistedGarage.getId());
+
+        // Act & Assert: a one-field patch leaves every other column alone
+        mockMvc.perform(patch("/api/garages/{id}", persistedGarage.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"name\":\"Patched Garage\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.name", is("Patched Garage")))
+                .andExpect(jsonPath("$.address", is(garageDTO.getAddress())))
+                .andExpect(jsonPath("$.email", is(garageDTO.getEmail())));
+        assertEquals(legacyHours, jdbcTemplate.queryForObject(
+                "SELECT opening_hours FROM garage WHERE id = ?", String.class, persistedGarage.getId()));
+
+        // Nested objects merge: null drops a day, other days stay
+        mockMvc.perform(patch("/api/garages/{id}", persistedGarage.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"openingHours\":{\"MONDAY\":null}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.openingHours.MONDAY").doesNotExist())
+                .andExpect(jsonPath("$.openingHours.TUESDAY[0].startTime", is("09:00:00")));
+
+        // The result must still be a valid garage, and stale versions are refused as for PUT
+        mockMvc.perform(patch("/api/garages/{id}", persistedGarage.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"email\":null}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/garages/{id}", persistedGarage.getId())
+                        .header("If-Match", "\"0\"")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"telephone\":\"000\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     void deleteGarage_ShouldReturn204_WhenGarageExists() throws Exception {
         // Arrange
@@ -221,4 +358,82 @@ public class GarageControllerIntegrationTest {
         mockMvc.perform(get("/api/garages/{id}", persistedGarage.getId()))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllGarages_ShouldWalkKeysetSlices_WhenCountIsDisabled() throws Exception {
+        // Arrange: duplicate names are ordered by id, and names may contain commas
+        for (String name : List.of("Delta", "Alpha, North", "Charlie", "Bravo", "Charlie")) {
+            Garage garage = new Garage();
+            garage.setName(name);
+            garage.setAddress("Address");
+            garage.setTelephone("123-456-7890");
+            garage.setEmail("keyset@test.com");
+            garageRepository.save(garage);
+        }
+
+        // Act
+        List<String> names = new ArrayList<>();
+        String after = null;
+        int slices = 0;
+        do {
+            var request = get("/api/garages").param("count", "false").param("size", "2");
+            if (after != null) {
+                request.param("after", after);
+            }
+            String body = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").doesNotExist())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode slice = objectMapper.readTree(body);
+            slice.get("content").forEach(garage -> names.add(garage.get("name").asText()));
+            after = slice.get("next").isNull() ? null : slice.get("next").asText();
+            slices++;
+        } while (after != null);
+
+        // Assert
+        assertEquals(List.of("Alpha, North", "Bravo", "Charlie", "Charlie", "Delta"), names);
+        assertEquals(3, slices);
+    }
+
+    @Test
+    void getAllGarages_ShouldReturn400_WhenCursorIsMalformed() throws Exception {
+        mockMvc.perform(get("/api/garages").param("after", "no-id"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail", is("Cursor must be <name>,<id>")));
+    }
+
+    @Test
+    void createGarage_ShouldReturn400_WhenAnOpeningTimeIsIncomplete() throws Exception {
+        // Arrange
+        String body = objectMapper.writeValueAsString(garageDTO)
+                .replaceFirst("\"endTime\":\"[0-9:]+\"", "\"endTime\":null");
+
+        // Act & Assert
+        mockMvc.perform(post("/api/garages")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+        assertEquals(0, garageRepository.count());
+    }
+
+    @Test
+    void getGaragesOpenAt_ShouldReturnOnlyGaragesOpenAtThatTime() throws Exception {
+        // Arrange: the test garage is open on Monday 9-12 and 13-18
+        mockMvc.perform(post("/api/garages")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(garageDTO)))
+                .andExpect(status().isCreated());
+
+        // Act & Assert: 2026-10-19 is a Monday
+        mockMvc.perform(get("/api/garages/open").param("at", "2026-10-19T10:15:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", is(1)))
+                .andExpect(jsonPath("$.content[0].name", is("Test Garage")));
+        mockMvc.perform(get("/api/garages/open").param("at", "2026-10-19T12:30:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", is(0)));
+        mockMvc.perform(get("/api/garages/open").param("at", "2026-10-18T10:15:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", is(0)));
+    }
+}
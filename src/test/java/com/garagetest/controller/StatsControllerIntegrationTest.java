@@ -0,0 +1,158 @@
+package com.garagetest.controller;
+
+import com.garagetest.dto.AccessoryDTO;
+import com.garagetest.dto.VehicleBatchResultDTO;
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.messaging.VehiclePublisher;
+import com.garagetest.model.Garage;
+import com.garagetest.repository.GarageRepository;
+import com.garagetest.service.AccessoryService;
+import com.garagetest.service.VehicleService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class StatsControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private AccessoryService accessoryService;
+
+    @MockitoBean
+    private VehiclePublisher vehiclePublisher;
+
+    private Garage garage1;
+    private Garage garage2;
+    private Long clioId;
+    private Long meganeId;
+
+    @BeforeEach
+    void setUp() {
+        garage1 = garageRepository.save(garage("Garage One"));
+        garage2 = garageRepository.save(garage("Garage Two"));
+        List<VehicleBatchResultDTO> results = vehicleService.createVehicles(List.of(
+                new VehicleDTO(null, "Renault", "Clio", 2022, "Gasoline", garage1.getId()),
+                new VehicleDTO(null, "RENAULT", "Megane", 2020, "Diesel", garage1.getId()),
+                new VehicleDTO(null, "Peugeot", "208", 2021, "Diesel", garage2.getId())));
+        clioId = results.get(0).getVehicle().getId();
+        meganeId = results.get(1).getVehicle().getId();
+        accessoryService.createAccessory(new AccessoryDTO(null, "Roof rack", "Steel", new BigDecimal("120.50"), "Exterior", clioId));
+        accessoryService.createAccessory(new AccessoryDTO(null, "Floor mats", "Rubber", new BigDecimal("30.00"), "Interior", meganeId));
+    }
+
+    @AfterEach
+    void tearDown() {
+        garageRepository.deleteAll();
+    }
+
+    @Test
+    void countVehicles_ShouldGroupIgnoringCase_LargestFirst() throws Exception {
+        mockMvc.perform(get("/api/stats/vehicles/by-brand"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(jsonPath("$[0].key", is("renault")))
+                .andExpect(jsonPath("$[0].count", is(2)))
+                .andExpect(jsonPath("$[1].key", is("peugeot")))
+                .andExpect(jsonPath("$[1].count", is(1)));
+
+        mockMvc.perform(get("/api/stats/vehicles/by-fuel-type"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].key", is("diesel")))
+                .andExpect(jsonPath("$[0].count", is(2)))
+                .andExpect(jsonPath("$[1].key", is("gasoline")));
+    }
+
+    @Test
+    void getGarageStats_ShouldSumAccessoriesPerGarage() throws Exception {
+        mockMvc.perform(get("/api/stats/garages").param("size", "10"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements", is(2)))
+                .andExpect(jsonPath("$.content[0].garageId", is(garage1.getId().intValue())))
+                .andExpect(jsonPath("$.content[0].vehicleCount", is(2)))
+                .andExpect(jsonPath("$.content[0].accessoryCount", is(2)))
+                .andExpect(jsonPath("$.content[0].accessoryValue", is(150.50)))
+                .andExpect(jsonPath("$.content[1].vehicleCount", is(1)))
+                .andExpect(jsonPath("$.content[1].accessoryCount", is(0)))
+                .andExpect(jsonPath("$.content[1].accessoryValue", is(0.0)));
+
+        mockMvc.perform(get("/api/stats/garages/{id}", garage2.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("Garage Two")))
+                .andExpect(jsonPath("$.vehicleCount", is(1)));
+
+        mockMvc.perform(get("/api/stats/garages/{id}", 999_999))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void accessoryTotals_ShouldFollowAccessoriesAndVehiclesAcrossGarages() throws Exception {
+        // Arrange: the floor mats move to the Clio at a new price, then the Clio moves to the second garage
+        AccessoryDTO mats = accessoryService.getAccessoriesByVehicleId(meganeId).get(0);
+        mats.setVehicleId(clioId);
+        mats.setPrice(new BigDecimal("45.00"));
+        accessoryService.updateAccessory(mats.getId(), mats);
+        VehicleDTO clio = vehicleService.getVehicleById(clioId);
+        clio.setGarageId(garage2.getId());
+        vehicleService.updateVehicle(clioId, clio);
+
+        // Assert
+        mockMvc.perform(get("/api/stats/vehicles/{id}", clioId))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.garageId", is(garage2.getId().intValue())))
+                .andExpect(jsonPath("$.accessoryCount", is(2)))
+                .andExpect(jsonPath("$.accessoryValue", is(165.50)));
+        mockMvc.perform(get("/api/stats/garages/{id}", garage1.getId()))
+                .andExpect(jsonPath("$.accessoryCount", is(0)))
+                .andExpect(jsonPath("$.accessoryValue", is(0.0)));
+        mockMvc.perform(get("/api/stats/garages/{id}", garage2.getId()))
+                .andExpect(jsonPath("$.accessoryCount", is(2)))
+                .andExpect(jsonPath("$.accessoryValue", is(165.50)));
+
+        // Act: deleting the Clio takes its accessories with it
+        vehicleService.deleteVehicle(clioId);
+
+        // Assert
+        mockMvc.perform(get("/api/stats/garages/{id}", garage2.getId()))
+                .andExpect(jsonPath("$.vehicleCount", is(1)))
+                .andExpect(jsonPath("$.accessoryCount", is(0)))
+                .andExpect(jsonPath("$.accessoryValue", is(0.0)));
+    }
+
+    private static Garage garage(String name) {
+        Garage garage = new Garage();
+        garage.setName(name);
+        garage.setAddress("123 Test Street, Test City");
+        garage.setTelephone("123-456-7890");
+        garage.setEmail("test@garage.com");
+        return garage;
+    }
+}
@@ -0,0 +1,423 @@
+package com.garagetest.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garagetest.dto.AccessoryDTO;
+import com.garagetest.dto.GarageStatsDTO;
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.messaging.VehiclePublisher;
+import com.garagetest.model.Garage;
+import com.garagetest.repository.GarageRepository;
+import com.garagetest.repository.VehicleRepository;
+import com.garagetest.service.AccessoryService;
+import com.garagetest.service.VehicleService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class VehicleControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private AccessoryService accessoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private VehiclePublisher vehiclePublisher;
+
+    private Garage garage;
+
+    @BeforeEach
+    void setUp() {
+        garage = new Garage();
+        garage.setName("Test Garage");
+        garage.setAddress("123 Test Street, Test City");
+        garage.setTelephone("123-456-7890");
+        garage.setEmail("test@garage.com");
+        garage = garageRepository.save(garage);
+    }
+
+    @AfterEach
+    void tearDown() {
+        garageRepository.deleteAll();
+    }
+
+    @Test
+    void createVehicle_ShouldReturn409_WhenTheGarageIsFull() throws Exception {
+        // Arrange
+        jdbcTemplate.update("UPDATE garage SET vehicle_count = ? WHERE id = ?", Garage.MAX_VEHICLES, garage.getId());
+        entityManagerFactory.getCache().evictAll();
+
+        // Act & Assert
+        mockMvc.perform(post("/api/vehicles")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new VehicleDTO(null, "Renault", "Clio", 2022, "Gasoline", garage.getId()))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.detail", is("Garage has reached maximum capacity of 50 vehicles")));
+    }
+
+    @Test
+    void createVehicle_ShouldReturn400_WhenAFieldIsLongerThanItsColumn() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/vehicles")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new VehicleDTO(null, "R".repeat(256), "Clio", 2022, "Gasoline", garage.getId()))))
+                .andExpect(status().isBadRequest());
+        assertEquals(0, vehicleRepository.countByGarageId(garage.getId()));
+    }
+
+    @Test
+    void createVehicles_ShouldReportPerRowResults() throws Exception {
+        // Arrange
+        List<VehicleDTO> batch = List.of(
+                new VehicleDTO(null, "Renault", "Clio", 2022, "Gasoline", garage.getId()),
+                new VehicleDTO(null, "", "Clio", 2022, "Gasoline", garage.getId()),
+                new VehicleDTO(null, "Peugeot", "208", 2021, "Diesel", 999L));
+
+        // Act
+        ResultActions response = mockMvc.perform(post("/api/vehicles/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)));
+
+        // Assert
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(1)))
+                .andExpect(jsonPath("$.rejected", is(2)))
+                .andExpect(jsonPath("$.results[0].status", is("CREATED")))
+                .andExpect(jsonPath("$.results[0].vehicle.id", notNullValue()))
+                .andExpect(jsonPath("$.results[1].error", is("Brand is required")))
+                .andExpect(jsonPath("$.results[2].error", is("Garage not found with id: 999")));
+        assertEquals(1, vehicleRepository.countByGarageId(garage.getId()));
+        assertEquals(1, garageRepository.findById(garage.getId()).orElseThrow().getVehicleCount());
+    }
+
+    @Test
+    void createVehicles_ShouldReturn400_WhenTheBatchIsTooLarge() throws Exception {
+        // Arrange
+        List<VehicleDTO> batch = Collections.nCopies(VehicleService.MAX_BATCH + 1,
+                new VehicleDTO(null, "Renault", "Clio", 2022, "Gasoline", garage.getId()));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/vehicles/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail", is("At most 500 vehicles can be created at once")));
+        assertEquals(0, vehicleRepository.countByGarageId(garage.getId()));
+    }
+
+    @Test
+    void importVehicles_ShouldStreamOneResultPerLine() throws Exception {
+        // Arrange
+        String body = objectMapper.writeValueAsString(new VehicleDTO(null, "Renault", "Clio", 2022, "Gasoline", garage.getId()))
+                + "\n{not json\n"
+                + objectMapper.writeValueAsString(new VehicleDTO(null, "Peugeot", "208", 2021, "Diesel", garage.getId()))
+                + "\n";
+
+        // Act
+        ResultActions response = mockMvc.perform(post("/api/vehicles/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body));
+
+        // Assert
+        String[] lines = response.andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("CREATED", objectMapper.readTree(lines[0]).get("status").asText());
+        assertEquals(1, objectMapper.readTree(lines[1]).get("index").asInt());
+        assertEquals("REJECTED", objectMapper.readTree(lines[1]).get("status").asText());
+        assertEquals(2, objectMapper.readTree(lines[2]).get("index").asInt());
+        assertEquals("CREATED", objectMapper.readTree(lines[2]).get("status").asText());
+        assertEquals(2, vehicleRepository.countByGarageId(garage.getId()));
+    }
+
+    @Test
+    void getVehiclesByModel_ShouldListPageOrStream_DependingOnRequest() throws Exception {
+        // Arrange
+        vehicleService.createVehicles(List.of(
+                new VehicleDTO(null, "Renault", "Clio", 2020, "Gasoline", garage.getId()),
+                new VehicleDTO(null, "Renault", "Clio", 2021, "Diesel", garage.getId()),
+                new VehicleDTO(null, "Renault", "Clio", 2022, "Electric", garage.getId()),
+                new VehicleDTO(null, "Peugeot", "208", 2022, "Diesel", garage.getId())));
+
+        // Act & Assert: full list by default
+        mockMvc.perform(get("/api/vehicles/model/clio"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()", is(3)));
+
+        // A page when one is asked for
+        mockMvc.perform(get("/api/vehicles/model/clio").param("page", "1").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()", is(1)))
+                .andExpect(jsonPath("$.content[0].manufacturingYear", is(2022)))
+                .andExpect(jsonPath("$.totalElements", is(3)));
+
+        // One vehicle per line for NDJSON clients
+        String[] lines = mockMvc.perform(get("/api/vehicles/model/clio").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        for (String line : lines) {
+            assertEquals("Clio", objectMapper.readValue(line, VehicleDTO.class).getModel());
+        }
+    }
+
+    @Test
+    void getVehiclesByGarageId_ShouldReturn304_UntilAVehicleIsAddedChangedOrRemoved() throws Exception {
+        // Arrange
+        vehicleService.createVehicles(List.of(
+                new VehicleDTO(null, "Renault", "Clio", 2020, "Gasoline", garage.getId()),
+                new VehicleDTO(null, "Peugeot", "208", 2022, "Diesel", garage.getId())));
+        List<VehicleDTO> vehicles = vehicleService.getVehiclesByGarageId(garage.getId());
+        String etag = vehiclesEtag();
+
+        // Act & Assert: unchanged, so no body
+        mockMvc.perform(get("/api/vehicles/garage/{garageId}", garage.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Every kind of change produces a new tag
+        VehicleDTO changed = vehicles.get(0);
+        changed.setManufacturingYear(2019);
+        vehicleService.updateVehicle(changed.getId(), changed);
+        String afterUpdate = vehiclesEtag();
+        vehicleService.deleteVehicle(vehicles.get(1).getId());
+        String afterDelete = vehiclesEtag();
+        vehicleService.createVehicle(new VehicleDTO(null, "Dacia", "Sandero", 2023, "Gasoline", garage.getId()));
+        String afterCreate = vehiclesEtag();
+        assertEquals(4, Set.of(etag, afterUpdate, afterDelete, afterCreate).size());
+
+        mockMvc.perform(get("/api/vehicles/garage/{garageId}", garage.getId()).header("If-None-Match", afterUpdate))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)));
+
+        // A missing garage is still a 404, whatever the client sends
+        mockMvc.perform(get("/api/vehicles/garage/{garageId}", 999_999L).header("If-None-Match", "\"0-0-0-0\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getVehiclesByGarageId_ShouldTagListsApart_WhenIdAndVersionSumsMatch() throws Exception {
+        // Arrange: four consecutive ids n..n+3; garage gets {n+1 v2, n+2 v1}, other gets {n v2, n+3 v1},
+        // the same count, highest version, id sum and version sum
+        Garage other = new Garage();
+        other.setName("Other Garage");
+        other.setAddress("5 Other Street, Other City");
+        other.setTelephone("098-765-4321");
+        other.setEmail("other@garage.com");
+        other = garageRepository.save(other);
+        List<Long> ids = vehicleService.createVehicles(List.of(
+                        new VehicleDTO(null, "Renault", "Clio", 2020, "Gasoline", garage.getId()),
+                        new VehicleDTO(null, "Peugeot", "208", 2021, "Diesel", garage.getId()),
+                        new VehicleDTO(null, "Dacia", "Sandero", 2022, "Gasoline", garage.getId()),
+                        new VehicleDTO(null, "Citroen", "C3", 2023, "Diesel", garage.getId())))
+                .stream().map(result -> result.getVehicle().getId()).sorted().toList();
+        assertEquals(ids.get(0) + 3, ids.get(3));
+        setVersionAndGarage(ids.get(0), 2, other.getId());
+        setVersionAndGarage(ids.get(1), 2, garage.getId());
+        setVersionAndGarage(ids.get(2), 1, garage.getId());
+        setVersionAndGarage(ids.get(3), 1, other.getId());
+        entityManagerFactory.getCache().evictAll();
+
+        // Act
+        String etag = vehiclesEtag();
+        String otherEtag = mockMvc.perform(get("/api/vehicles/garage/{garageId}", other.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Assert
+        assertNotEquals(etag, otherEtag);
+    }
+
+    @Test
+    void getAccessoriesByVehicleId_ShouldReturn304_UntilAnAccessoryChanges() throws Exception {
+        // Arrange
+        VehicleDTO vehicle = vehicleService.createVehicle(new VehicleDTO(null, "Renault", "Clio", 2020, "Gasoline", garage.getId()));
+        AccessoryDTO accessory = accessoryService.createAccessory(
+                new AccessoryDTO(null, "Roof rack", "Steel roof rack", new BigDecimal("120.00"), "Transport", vehicle.getId()));
+        String etag = mockMvc.perform(get("/api/accessories/vehicle/{vehicleId}", vehicle.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        String accessoryEtag = mockMvc.perform(get("/api/accessories/{id}", accessory.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert
+        mockMvc.perform(get("/api/accessories/vehicle/{vehicleId}", vehicle.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/accessories/{id}", accessory.getId()).header("If-None-Match", accessoryEtag))
+                .andExpect(status().isNotModified());
+
+        accessory.setPrice(new BigDecimal("99.00"));
+        accessoryService.updateAccessory(accessory.getId(), accessory);
+        mockMvc.perform(get("/api/accessories/vehicle/{vehicleId}", vehicle.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].price", is(99.0)));
+        mockMvc.perform(get("/api/accessories/{id}", accessory.getId()).header("If-None-Match", accessoryEtag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void patchVehicle_ShouldUpdateOneFieldAndPublishTheWholeVehicle() throws Exception {
+        // Arrange
+        VehicleDTO vehicle = vehicleService.createVehicle(new VehicleDTO(null, "Renault", "Clio", 2020, "Gasoline", garage.getId()));
+
+        // Act
+        mockMvc.perform(patch("/api/vehicles/{id}", vehicle.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"fuelType\":\"Hybrid\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fuelType", is("Hybrid")))
+                .andExpect(jsonPath("$.brand", is("Renault")))
+                .andExpect(jsonPath("$.version", is(1)));
+
+        // Assert
+        verify(vehiclePublisher).publishVehicleUpdated(
+                new VehicleDTO(vehicle.getId(), "Renault", "Clio", 2020, "Hybrid", garage.getId(), 1L), 1L);
+        mockMvc.perform(patch("/api/vehicles/{id}", vehicle.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fuelType\":\"Diesel\"}"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    @Test
+    void deleteVehicles_ShouldDeleteTheBatchWithItsAccessoriesAndReleaseTheSlots() throws Exception {
+        // Arrange
+        Garage other = new Garage();
+        other.setName("Other Garage");
+        other.setAddress("5 Other Street, Other City");
+        other.setTelephone("098-765-4321");
+        other.setEmail("other@garage.com");
+        other = garageRepository.save(other);
+        VehicleDTO clio = vehicleService.createVehicle(new VehicleDTO(null, "Renault", "Clio", 2020, "Gasoline", garage.getId()));
+        VehicleDTO sandero = vehicleService.createVehicle(new VehicleDTO(null, "Dacia", "Sandero", 2021, "Gasoline", garage.getId()));
+        VehicleDTO kept = vehicleService.createVehicle(new VehicleDTO(null, "Peugeot", "208", 2022, "Diesel", other.getId()));
+        VehicleDTO moved = vehicleService.createVehicle(new VehicleDTO(null, "Citroen", "C3", 2019, "Diesel", other.getId()));
+        accessoryService.createAccessory(new AccessoryDTO(null, "Roof rack", "Steel roof rack", new BigDecimal("120.00"), "Transport", clio.getId()));
+        accessoryService.createAccessory(new AccessoryDTO(null, "Tow bar", "Removable tow bar", new BigDecimal("300.00"), "Transport", moved.getId()));
+        // Warm the cache with a vehicle the batch then removes
+        mockMvc.perform(get("/api/vehicles/{id}", clio.getId())).andExpect(status().isOk());
+
+        // Act
+        mockMvc.perform(delete("/api/vehicles").param("ids", clio.getId() + "," + sandero.getId() + "," + moved.getId()))
+                .andExpect(status().isNoContent());
+
+        // Assert
+        mockMvc.perform(get("/api/vehicles/{id}", clio.getId())).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/accessories/vehicle/{vehicleId}", moved.getId())).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/vehicles/garage/{garageId}", other.getId()))
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(jsonPath("$[0].id", is(kept.getId().intValue())));
+        GarageStatsDTO stats = garageRepository.findGarageStatsById(garage.getId()).orElseThrow();
+        assertEquals(0, stats.getVehicleCount());
+        assertEquals(0, stats.getAccessoryCount());
+        GarageStatsDTO otherStats = garageRepository.findGarageStatsById(other.getId()).orElseThrow();
+        assertEquals(1, otherStats.getVehicleCount());
+        assertEquals(0, otherStats.getAccessoryValue().signum());
+        verify(vehiclePublisher).publishVehicleDeleted(clio, 0L);
+        verify(vehiclePublisher).publishVehicleDeleted(sandero, 0L);
+        verify(vehiclePublisher).publishVehicleDeleted(moved, 0L);
+
+        // One missing id and nothing is deleted
+        mockMvc.perform(delete("/api/vehicles").param("ids", kept.getId() + ",999999"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/vehicles/{id}", kept.getId())).andExpect(status().isOk());
+
+        // Batches are bounded
+        String tooMany = LongStream.rangeClosed(1, VehicleService.MAX_BATCH + 1)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(","));
+        mockMvc.perform(delete("/api/vehicles").param("ids", tooMany))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/vehicles/{id}", kept.getId())).andExpect(status().isOk());
+    }
+
+    @Test
+    void deleteGarage_ShouldRemoveItsVehiclesAndPublishTheirDeletion() throws Exception {
+        // Arrange
+        VehicleDTO clio = vehicleService.createVehicle(new VehicleDTO(null, "Renault", "Clio", 2020, "Gasoline", garage.getId()));
+        VehicleDTO sandero = vehicleService.createVehicle(new VehicleDTO(null, "Dacia", "Sandero", 2021, "Gasoline", garage.getId()));
+        AccessoryDTO accessory = accessoryService.createAccessory(
+                new AccessoryDTO(null, "Roof rack", "Steel roof rack", new BigDecimal("120.00"), "Transport", clio.getId()));
+
+        // Act
+        mockMvc.perform(delete("/api/garages/{id}", garage.getId()))
+                .andExpect(status().isNoContent());
+
+        // Assert
+        mockMvc.perform(get("/api/garages/{id}", garage.getId())).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/vehicles/{id}", sandero.getId())).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/accessories/{id}", accessory.getId())).andExpect(status().isNotFound());
+        verify(vehiclePublisher).publishVehicleDeleted(clio, 0L);
+        verify(vehiclePublisher).publishVehicleDeleted(sandero, 0L);
+        mockMvc.perform(delete("/api/garages/{id}", garage.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    // Written behind Hibernate's back, as another writer could; callers evict the caches afterwards
+    private void setVersionAndGarage(Long vehicleId, long version, Long garageId) {
+        jdbcTemplate.update("UPDATE vehicle SET version = ?, garage_id = ? WHERE id = ?", version, garageId, vehicleId);
+    }
+
+    private String vehiclesEtag() throws Exception {
+        return mockMvc.perform(get("/api/vehicles/garage/{garageId}", garage.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+    }
+}
@@ -0,0 +1,138 @@
+package com.garagetest.controller;
+
+import com.garagetest.GarageTestApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with: mvn test -Pbenchmark (on Java 21+ for the virtual-thread run to differ)
+@Tag("benchmark")
+@Slf4j
+class VirtualThreadLoadBenchmarkTest {
+
+    private static final int CLIENTS = 5_000;
+    private static final int REQUESTS_PER_CLIENT = 4;
+    private static final int GARAGES = 1_000;
+
+    @Test
+    void comparePlatformWithVirtualThreads() {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        log.info("platform threads: {}", platform);
+        log.info("virtual threads{}: {}", virtual.virtualThreads ? "" : " (inactive before Java 21, same as platform)", virtual);
+        assertEquals(0, platform.errors);
+        assertEquals(0, virtual.errors);
+    }
+
+    // Starts the application in the given mode and has CLIENTS concurrent clients each send
+    // REQUESTS_PER_CLIENT requests in a row to an endpoint that runs one uncached query
+    private Result run(boolean virtualThreads) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(GarageTestApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.garagetest.controller=INFO")
+                .run()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < GARAGES; i++) {
+                rows.add(new Object[]{"Garage " + i, i + " Main Street, Lyon", "lyon"});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO garage (name, address, city, telephone, email, opening_hours) "
+                    + "VALUES (?, ?, ?, '0102030405', 'garage@example.com', '{}' FORMAT JSON)", rows);
+            List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM garage", Long.class);
+            URI base = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+
+            ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+            try {
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(30))
+                        .executor(clientExecutor)
+                        .build();
+                load(client, base, ids, 500);
+                return load(client, base, ids, CLIENTS)
+                        .withVirtualThreads(Threading.VIRTUAL.isActive(context.getEnvironment()));
+            } finally {
+                clientExecutor.shutdownNow();
+            }
+        }
+    }
+
+    private Result load(HttpClient client, URI base, List<Long> ids, int clients) {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        CompletableFuture<?>[] sessions = new CompletableFuture<?>[clients];
+        for (int c = 0; c < clients; c++) {
+            CompletableFuture<?> session = CompletableFuture.completedFuture(null);
+            for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                session = session.thenCompose(previous -> send(client, base, ids, latencies, errors));
+            }
+            sessions[c] = session;
+        }
+        CompletableFuture.allOf(sessions).join();
+        long elapsed = System.nanoTime() - start;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Result(false, sorted.length, errors.get(), elapsed / 1_000_000,
+                percentile(sorted, 0.50), percentile(sorted, 0.99));
+    }
+
+    private CompletableFuture<?> send(HttpClient client, URI base, List<Long> ids,
+                                      ConcurrentLinkedQueue<Long> latencies, AtomicInteger errors) {
+        Long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/api/stats/garages/" + id))
+                .timeout(Duration.ofSeconds(120))
+                .build();
+        long sent = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    latencies.add((System.nanoTime() - sent) / 1_000_000);
+                    if (failure != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    }
+                    return null;
+                });
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * percentile))];
+    }
+
+    private record Result(boolean virtualThreads, int requests, int errors, long millis, long p50, long p99) {
+
+        Result withVirtualThreads(boolean virtualThreads) {
+            return new Result(virtualThreads, requests, errors, millis, p50, p99);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests (%d failed) in %d ms, %.0f req/s, p50 %d ms, p99 %d ms",
+                    requests, errors, millis, requests * 1000.0 / Math.max(1, millis), p50, p99);
+        }
+    }
+}
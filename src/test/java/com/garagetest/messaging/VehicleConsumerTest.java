@@ -0,0 +1,101 @@
+package com.garagetest.messaging;
+
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.service.VehicleReadModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VehicleConsumerTest {
+
+    @Mock
+    private VehicleReadModel readModel;
+
+    private SimpleMeterRegistry meterRegistry;
+    private VehicleConsumer consumer;
+    private VehicleDTO vehicle;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        consumer = new VehicleConsumer(readModel, meterRegistry, 1024);
+        vehicle = new VehicleDTO(1L, "Renault", "Clio", 2022, "Gasoline", 7L);
+    }
+
+    @Test
+    void consumeVehicleEvents_ShouldDropDuplicatesAndStaleUpdates() {
+        // Arrange
+        VehicleEvent created = VehicleEvent.vehicleCreated(vehicle, 0L);
+        VehicleEvent firstUpdate = VehicleEvent.vehicleUpdated(vehicle, 1L);
+        VehicleEvent secondUpdate = VehicleEvent.vehicleUpdated(vehicle, 2L);
+
+        // Act: a redelivered batch, then the first update arriving late
+        consumer.consumeVehicleEvents(List.of(created, firstUpdate, secondUpdate));
+        consumer.consumeVehicleEvents(List.of(created, firstUpdate, secondUpdate));
+        consumer.consumeVehicleEvent(firstUpdate);
+
+        // Assert
+        verify(readModel, times(1)).apply(created);
+        verify(readModel, times(1)).apply(firstUpdate);
+        verify(readModel, times(1)).apply(secondUpdate);
+        assertEquals(4, meterRegistry.counter("vehicle.events.skipped", "reason", "stale").count());
+    }
+
+    @Test
+    void consumeVehicleEvents_ShouldHandUnreadableRecordsToTheErrorHandler() {
+        // Arrange: ErrorHandlingDeserializer leaves null for a record it could not decode
+        VehicleEvent created = VehicleEvent.vehicleCreated(vehicle, 0L);
+        List<VehicleEvent> batch = Arrays.asList(created, null);
+
+        // Act
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.consumeVehicleEvents(batch));
+
+        // Assert: the events before it are committed, and it is not retried
+        assertEquals(1, exception.getIndex());
+        assertInstanceOf(DeserializationException.class, exception.getCause());
+        verify(readModel, times(1)).apply(created);
+    }
+
+    @Test
+    void consumeVehicleEvent_ShouldApplyUnversionedEvents() {
+        // Arrange
+        VehicleEvent legacy = VehicleEvent.vehicleUpdated(vehicle);
+
+        // Act
+        consumer.consumeVehicleEvent(legacy);
+        consumer.consumeVehicleEvent(legacy);
+
+        // Assert
+        verify(readModel, times(2)).apply(legacy);
+    }
+
+    @Test
+    void versionTracker_ShouldStayBounded_AndForgetOldestVehicles() {
+        // Arrange
+        VehicleVersionTracker tracker = new VehicleVersionTracker(64);
+
+        // Act
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(tracker.advance(id, 5));
+        }
+
+        // Assert: recent vehicles are still deduplicated, evicted ones accept their next event
+        assertEquals(64, tracker.capacity());
+        assertFalse(tracker.advance(10_000, 5));
+        assertTrue(tracker.advance(10_000, 6));
+        assertTrue(tracker.advance(1, 5));
+    }
+}
@@ -0,0 +1,95 @@
+package com.garagetest.messaging;
+
+import com.garagetest.dto.VehicleDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@Slf4j
+@EmbeddedKafka
+class VehicleConsumerThroughputBenchmarkTest {
+
+    private static final int EVENTS = 3000;
+    private static final int GARAGES = 60;
+
+    @Test
+    void consumptionScalesWithPartitions(EmbeddedKafkaBroker embeddedKafka) throws Exception {
+        for (int partitions : new int[]{1, 3, 6}) {
+            long millis = consume(embeddedKafka, partitions);
+            log.info("{} partitions / {} consumers: {} events in {} ms ({} events/s)",
+                    partitions, partitions, EVENTS, millis, EVENTS * 1000L / Math.max(1, millis));
+        }
+    }
+
+    private long consume(EmbeddedKafkaBroker embeddedKafka, int partitions) throws Exception {
+        String topic = "vehicles-bench-" + partitions;
+        embeddedKafka.addTopics(new NewTopic(topic, partitions, (short) 1));
+
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(embeddedKafka), new StringSerializer(), new JsonSerializer<>()));
+        for (int i = 0; i < EVENTS; i++) {
+            long garageId = i % GARAGES;
+            VehicleDTO vehicle = new VehicleDTO((long) i, "Renault", "Clio", 2022, "Gasoline", garageId);
+            template.send(topic, Long.toString(garageId), VehicleEvent.vehicleCreated(vehicle));
+        }
+        template.flush();
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("bench-" + partitions, "false", embeddedKafka);
+        ConcurrentKafkaListenerContainerFactory<String, VehicleEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(consumerProps,
+                new StringDeserializer(), new JsonDeserializer<>(VehicleEvent.class, false)));
+        factory.setConcurrency(partitions);
+        factory.setBatchListener(true);
+
+        CountDownLatch consumed = new CountDownLatch(EVENTS);
+        // Timed from the first delivered batch so consumer group joins are not counted
+        AtomicLong start = new AtomicLong();
+        ConcurrentMessageListenerContainer<String, VehicleEvent> container = factory.createContainer(topic);
+        container.getContainerProperties().setMessageListener((BatchMessageListener<String, VehicleEvent>) records -> {
+            start.compareAndSet(0, System.nanoTime());
+            for (int i = 0; i < records.size(); i++) {
+                simulateWork();
+                consumed.countDown();
+            }
+        });
+
+        container.start();
+        assertTrue(consumed.await(120, TimeUnit.SECONDS));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start.get());
+        container.stop();
+        template.destroy();
+        return millis;
+    }
+
+    // Stand-in for per-event processing such as updating a read model
+    private void simulateWork() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
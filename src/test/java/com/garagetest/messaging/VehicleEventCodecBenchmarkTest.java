@@ -0,0 +1,59 @@
+package com.garagetest.messaging;
+
+import com.garagetest.dto.VehicleDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@Slf4j
+class VehicleEventCodecBenchmarkTest {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    private final VehicleEvent event = VehicleEvent.vehicleCreated(
+            new VehicleDTO(4242L, "Volkswagen", "Golf", 2020, "Hybrid", 17L));
+
+    @Test
+    void compareJsonWithBinary() {
+        JsonSerializer<VehicleEvent> jsonSerializer = new JsonSerializer<>();
+        JsonDeserializer<VehicleEvent> jsonDeserializer = new JsonDeserializer<>(VehicleEvent.class, false);
+
+        byte[] json = jsonSerializer.serialize("vehicles", event);
+        byte[] binary = VehicleEventCodec.encode(event);
+        assertEquals(event, jsonDeserializer.deserialize("vehicles", json));
+        assertEquals(event, VehicleEventCodec.decode(binary));
+
+        log.info("json: {} bytes, serialize {} ns/op, deserialize {} ns/op", json.length,
+                nanosPerOp(e -> jsonSerializer.serialize("vehicles", e), event),
+                nanosPerOp(bytes -> jsonDeserializer.deserialize("vehicles", bytes), json));
+        log.info("binary: {} bytes, serialize {} ns/op, deserialize {} ns/op", binary.length,
+                nanosPerOp(VehicleEventCodec::encode, event),
+                nanosPerOp(VehicleEventCodec::decode, binary));
+    }
+
+    private <T> long nanosPerOp(Function<T, ?> operation, T input) {
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) {
+            sink = operation.apply(input);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = operation.apply(input);
+        }
+        long elapsed = System.nanoTime() - start;
+        // Keeps the results observable so the loop is not optimised away
+        if (sink == null) {
+            throw new IllegalStateException();
+        }
+        return elapsed / ITERATIONS;
+    }
+}
@@ -0,0 +1,111 @@
+package com.garagetest.messaging;
+
+import com.garagetest.dto.VehicleDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleEventCodecTest {
+
+    private final VehicleEventDeserializer deserializer = new VehicleEventDeserializer();
+
+    @Test
+    void encode_ShouldRoundTripAllFields() {
+        // Arrange
+        VehicleEvent event = new VehicleEvent(VehicleEvent.EventType.UPDATED,
+                new VehicleDTO(42L, "Citroën", "C3", 2019, "Diesel", 7L),
+                LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_456_789), 3L);
+
+        // Act
+        byte[] bytes = VehicleEventCodec.encode(event);
+
+        // Assert
+        assertTrue(VehicleEventCodec.isBinary(bytes));
+        assertEquals(event, deserializer.deserialize("vehicles", bytes));
+    }
+
+    @Test
+    void encode_ShouldPreserveNullFields() {
+        // Arrange
+        VehicleEvent event = new VehicleEvent(VehicleEvent.EventType.DELETED,
+                new VehicleDTO(1L, null, "Clio", null, null, null), null, null);
+
+        // Act
+        VehicleEvent decoded = VehicleEventCodec.decode(VehicleEventCodec.encode(event));
+
+        // Assert
+        assertEquals(event, decoded);
+    }
+
+    @Test
+    void encode_ShouldBeSmallerThanJson() {
+        // Arrange
+        VehicleEvent event = VehicleEvent.vehicleCreated(new VehicleDTO(42L, "Renault", "Clio", 2022, "Gasoline", 7L));
+
+        // Act
+        byte[] json = new JsonSerializer<VehicleEvent>().serialize("vehicles", event);
+        byte[] binary = VehicleEventCodec.encode(event);
+
+        // Assert
+        assertTrue(binary.length < json.length / 2);
+    }
+
+    @Test
+    void deserialize_ShouldStillReadJsonEvents() {
+        // Arrange
+        VehicleEvent event = VehicleEvent.vehicleCreated(new VehicleDTO(42L, "Renault", "Clio", 2022, "Gasoline", 7L));
+        byte[] json = new JsonSerializer<VehicleEvent>().serialize("vehicles", event);
+
+        // Act & Assert
+        assertFalse(VehicleEventCodec.isBinary(json));
+        assertEquals(event, deserializer.deserialize("vehicles", json));
+    }
+
+    @Test
+    void decode_ShouldRejectUnknownVersion() {
+        // Arrange
+        byte[] bytes = VehicleEventCodec.encode(VehicleEvent.vehicleCreated(new VehicleDTO()));
+        bytes[1] = 99;
+
+        // Act & Assert
+        assertThrows(SerializationException.class, () -> VehicleEventCodec.decode(bytes));
+    }
+
+    @Test
+    void decode_ShouldRejectTruncatedEvents() {
+        // Arrange
+        byte[] bytes = VehicleEventCodec.encode(VehicleEvent.vehicleCreated(new VehicleDTO(42L, "Renault", "Clio", 2022, "Gasoline", 7L)));
+
+        // Act & Assert: cut inside the fixed fields, then inside a string
+        assertThrows(SerializationException.class, () -> VehicleEventCodec.decode(Arrays.copyOf(bytes, 10)));
+        assertThrows(SerializationException.class, () -> VehicleEventCodec.decode(Arrays.copyOf(bytes, 43)));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("vehicles", Arrays.copyOf(bytes, 2)));
+    }
+
+    @Test
+    void decode_ShouldRejectUnknownEventTypes() {
+        // Arrange
+        byte[] bytes = VehicleEventCodec.encode(VehicleEvent.vehicleCreated(new VehicleDTO()));
+        bytes[2] = 42;
+
+        // Act & Assert
+        assertThrows(SerializationException.class, () -> VehicleEventCodec.decode(bytes));
+    }
+
+    @Test
+    void decode_ShouldReadVersion1Events() {
+        // Arrange: a version 2 event without an event version, minus the trailing version field
+        VehicleEvent event = VehicleEvent.vehicleCreated(new VehicleDTO(42L, "Renault", "Clio", 2022, "Gasoline", 7L));
+        byte[] v2 = VehicleEventCodec.encode(event);
+        byte[] v1 = Arrays.copyOf(v2, v2.length - Long.BYTES);
+        v1[1] = VehicleEventCodec.VERSION_1;
+
+        // Act & Assert
+        assertEquals(event, VehicleEventCodec.decode(v1));
+    }
+}
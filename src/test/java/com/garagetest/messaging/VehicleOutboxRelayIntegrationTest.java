@@ -0,0 +1,148 @@
+package com.garagetest.messaging;
+
+import com.garagetest.config.KafkaConfig;
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.model.OutboxEvent;
+import com.garagetest.repository.OutboxDeadLetterRepository;
+import com.garagetest.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "vehicle.outbox.relay-enabled=true",
+        "vehicle.events.codec=binary"
+})
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 1, topics = KafkaConfig.VEHICLE_TOPIC)
+class VehicleOutboxRelayIntegrationTest {
+
+    @Autowired
+    private VehiclePublisher vehiclePublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxDeadLetterRepository outboxDeadLetterRepository;
+
+    private Consumer<String, VehicleEvent> consumer;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-test", "false", embeddedKafka);
+        consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(),
+                new VehicleEventDeserializer()).createConsumer();
+        embeddedKafka.consumeFromAnEmbeddedTopic(consumer, KafkaConfig.VEHICLE_TOPIC);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+    }
+
+    @Test
+    void publish_ShouldRelayCommittedEventsInOrder_AndCleanUpOutbox() {
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            vehiclePublisher.publishVehicleCreated(vehicle(1L), 0);
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            vehiclePublisher.publishVehicleCreated(vehicle(2L), 0);
+            vehiclePublisher.publishVehicleUpdated(vehicle(2L), 1);
+        });
+
+        // Assert
+        List<VehicleEvent> received = receive(2, 2L);
+        assertEquals(2, received.size());
+        assertTrue(received.stream().allMatch(event -> event.getVehicle().getId() == 2L));
+        assertEquals(VehicleEvent.EventType.CREATED, received.get(0).getEventType());
+        assertEquals(VehicleEvent.EventType.UPDATED, received.get(1).getEventType());
+        assertEquals(1L, received.get(1).getVersion());
+        assertTrue(outboxDrained());
+        assertTrue(meterRegistry.counter("vehicle.events.published", "outcome", "success").count() >= 2);
+    }
+
+    @Test
+    void relay_ShouldDeadLetterUnreadablePayload_AndKeepDeliveringLaterEvents() {
+        // Arrange
+        Long[] corruptId = new Long[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            vehiclePublisher.publishVehicleCreated(vehicle(3L), 0);
+            corruptId[0] = outboxEventRepository.save(
+                    new OutboxEvent(null, "3", "UPDATED", "{not json", Instant.now())).getId();
+            vehiclePublisher.publishVehicleUpdated(vehicle(3L), 2);
+        });
+
+        // Act
+        List<VehicleEvent> received = receive(2, 3L);
+
+        // Assert
+        assertEquals(2, received.size());
+        assertEquals(VehicleEvent.EventType.CREATED, received.get(0).getEventType());
+        assertEquals(VehicleEvent.EventType.UPDATED, received.get(1).getEventType());
+        assertEquals(2L, received.get(1).getVersion());
+        assertTrue(outboxDrained());
+        assertEquals("{not json", outboxDeadLetterRepository.findById(corruptId[0]).orElseThrow().getPayload());
+        assertTrue(meterRegistry.counter("vehicle.events.published", "outcome", "dead_letter").count() >= 1);
+    }
+
+    // Collects events for one vehicle; the topic is shared by every test in the class
+    private List<VehicleEvent> receive(int expected, Long vehicleId) {
+        List<VehicleEvent> received = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (received.size() < expected && System.currentTimeMillis() < deadline) {
+            for (ConsumerRecord<String, VehicleEvent> record : KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1))) {
+                if (vehicleId.equals(record.value().getVehicle().getId())) {
+                    received.add(record.value());
+                }
+            }
+        }
+        return received;
+    }
+
+    // Rows are deleted just after the broker acknowledges them
+    private boolean outboxDrained() {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (outboxEventRepository.count() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        return outboxEventRepository.count() == 0;
+    }
+
+    private VehicleDTO vehicle(Long id) {
+        return new VehicleDTO(id, "Renault", "Clio", 2022, "Gasoline", 1L);
+    }
+}
@@ -0,0 +1,89 @@
+package com.garagetest.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@Slf4j
+class OpeningHoursBenchmarkTest {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    // Loading a garage's column and writing it into a response, with a map and with OpeningHours
+    @Test
+    void compareMapWithOpeningHours() {
+        Map<DayOfWeek, List<OpeningTime>> hours = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY,
+                DayOfWeek.FRIDAY)) {
+            hours.put(day, List.of(new OpeningTime(LocalTime.of(8, 0), LocalTime.of(12, 0)),
+                    new OpeningTime(LocalTime.of(13, 30), LocalTime.of(18, 0))));
+        }
+        hours.put(DayOfWeek.SATURDAY, List.of(new OpeningTime(LocalTime.of(9, 0), LocalTime.of(12, 0))));
+        String column = OpeningHours.of(hours).toJson();
+        TypeReference<Map<DayOfWeek, List<OpeningTime>>> mapType = new TypeReference<>() {
+        };
+
+        Function<String, String> viaMap = json -> write(read(json, mapType));
+        Function<String, String> viaOpeningHours = json -> write(OpeningHours.fromJson(json));
+        assertEquals(viaMap.apply(column), viaOpeningHours.apply(column));
+
+        log.info("map: {} ns/op, opening hours: {} ns/op, opening hours already loaded: {} ns/op",
+                nanosPerOp(viaMap, column), nanosPerOp(viaOpeningHours, column),
+                nanosPerOp(this::write, OpeningHours.fromJson(column)));
+    }
+
+    private <T> T read(String json, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> long nanosPerOp(Function<T, ?> operation, T input) {
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) {
+            sink = operation.apply(input);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = operation.apply(input);
+        }
+        long elapsed = System.nanoTime() - start;
+        // Keeps the results observable so the loop is not optimised away
+        if (sink == null) {
+            throw new IllegalStateException();
+        }
+        return elapsed / ITERATIONS;
+    }
+}
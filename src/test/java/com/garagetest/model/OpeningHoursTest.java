@@ -0,0 +1,107 @@
+package com.garagetest.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningHoursTest {
+
+    private static final String CANONICAL = "{\"MONDAY\":[{\"startTime\":\"09:00:00\",\"endTime\":\"12:30:15\"},"
+            + "{\"startTime\":\"14:00:00\",\"endTime\":\"18:00:00\"}],"
+            + "\"SUNDAY\":[{\"startTime\":\"22:00:00\",\"endTime\":\"02:00:00\"}]}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void of_ShouldWriteDaysInWeekOrder() {
+        // Arrange
+        Map<DayOfWeek, List<OpeningTime>> hours = new HashMap<>();
+        hours.put(DayOfWeek.SUNDAY, List.of(time(22, 0, 0, 2, 0, 0)));
+        hours.put(DayOfWeek.MONDAY, List.of(time(9, 0, 0, 12, 30, 15), time(14, 0, 0, 18, 0, 0)));
+        hours.put(DayOfWeek.TUESDAY, List.of());
+
+        // Act
+        OpeningHours openingHours = OpeningHours.of(hours);
+
+        // Assert
+        assertEquals(CANONICAL, openingHours.toJson());
+        assertEquals(List.of(time(22, 0, 0, 2, 0, 0)), openingHours.toMap().get(DayOfWeek.SUNDAY));
+    }
+
+    @Test
+    void of_ShouldRejectIncompleteRanges() {
+        // Arrange
+        Map<DayOfWeek, List<OpeningTime>> hours = new HashMap<>();
+        hours.put(DayOfWeek.MONDAY, List.of(time(9, 0, 0, 12, 0, 0), new OpeningTime(LocalTime.of(14, 0), null)));
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> OpeningHours.of(hours));
+        assertEquals("Opening time on MONDAY needs a start and an end time", exception.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> OpeningHours.of(Map.of(DayOfWeek.TUESDAY, Collections.singletonList(null))));
+    }
+
+    @Test
+    void fromJson_ShouldDropIncompleteRangesOfStoredRows() {
+        // Act & Assert
+        assertEquals("{\"MONDAY\":[{\"startTime\":\"09:00:00\",\"endTime\":\"12:00:00\"}]}",
+                OpeningHours.fromJson("{\"MONDAY\":[{\"startTime\":[9,0],\"endTime\":[12,0]},{\"startTime\":[14,0]}]}").toJson());
+    }
+
+    @Test
+    void fromJson_ShouldKeepCanonicalTextAsIs() {
+        // Act
+        OpeningHours openingHours = OpeningHours.fromJson(CANONICAL);
+
+        // Assert
+        assertSame(CANONICAL, openingHours.toJson());
+        assertEquals(OpeningHours.of(openingHours.toMap()), openingHours);
+    }
+
+    @Test
+    void fromJson_ShouldRewriteOtherLayouts() {
+        // Arrange
+        String arrays = "{\"SUNDAY\":[{\"startTime\":[22,0],\"endTime\":[2,0]}],"
+                + "\"MONDAY\":[{\"startTime\":[9,0],\"endTime\":[12,30,15]},{\"startTime\":[14,0],\"endTime\":[18,0]}]}";
+        String spaced = CANONICAL.replace("\",\"", "\", \"").replace("\":\"", "\": \"").replace("\":[", "\": [");
+
+        // Act & Assert
+        assertEquals(CANONICAL, OpeningHours.fromJson(arrays).toJson());
+        assertEquals(CANONICAL, OpeningHours.fromJson(spaced).toJson());
+        assertEquals(OpeningHours.fromJson(CANONICAL), OpeningHours.fromJson(arrays));
+    }
+
+    @Test
+    void fromJson_ShouldRejectUnreadableText() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> OpeningHours.fromJson("{\"MONDAY\":").toJson());
+    }
+
+    @Test
+    void jackson_ShouldReadMapsAndWriteTheCanonicalText() throws Exception {
+        // Act
+        OpeningHours read = objectMapper.readValue(CANONICAL.replace("\"SUNDAY\"", "\"FRIDAY\""), OpeningHours.class);
+        String written = objectMapper.writeValueAsString(Map.of("openingHours", OpeningHours.fromJson(CANONICAL)));
+
+        // Assert
+        assertEquals(List.of(time(22, 0, 0, 2, 0, 0)), read.toMap().get(DayOfWeek.FRIDAY));
+        assertEquals("{\"openingHours\":" + CANONICAL + "}", written);
+        assertEquals("{}", OpeningHours.EMPTY.toJson());
+    }
+
+    private static OpeningTime time(int startHour, int startMinute, int startSecond, int endHour, int endMinute, int endSecond) {
+        return new OpeningTime(LocalTime.of(startHour, startMinute, startSecond), LocalTime.of(endHour, endMinute, endSecond));
+    }
+}
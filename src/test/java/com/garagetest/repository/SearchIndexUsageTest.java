@@ -0,0 +1,91 @@
+package com.garagetest.repository;
+
+import com.garagetest.model.Garage;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Explains the SQL the services' case-insensitive queries actually emit and checks that H2 plans an index lookup
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.garagetest.repository.SearchIndexUsageTest$CapturedSql")
+@ActiveProfiles("test")
+class SearchIndexUsageTest {
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private AccessoryRepository accessoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        CapturedSql.STATEMENTS.clear();
+    }
+
+    @Test
+    void vehicleSearches_ShouldUseTheLowercaseIndexes() {
+        assertIndexLookup("IDX_VEHICLE_BRAND_LOWER", () -> vehicleRepository.findByBrandIgnoreCase("Explain-Brand"));
+        assertIndexLookup("IDX_VEHICLE_MODEL_LOWER", () -> vehicleRepository.findVehicleDtosByModel("Explain-Model"));
+        assertIndexLookup("IDX_VEHICLE_FUEL_TYPE_LOWER", () -> vehicleRepository.findByFuelTypeIgnoreCase("Explain-Fuel"));
+    }
+
+    @Test
+    void accessorySearches_ShouldUseTheLowercaseIndex() {
+        assertIndexLookup("IDX_ACCESSORY_TYPE_LOWER", () -> accessoryRepository.findAccessoryDtosByType("Explain-Type"));
+        assertIndexLookup("IDX_ACCESSORY_TYPE_LOWER", () -> accessoryRepository.findByTypeIgnoreCase("Explain-Type-2"));
+    }
+
+    @Test
+    void garageSearches_ShouldUseTheCityAndVehicleIndexes() {
+        assertIndexLookup("IDX_GARAGE_CITY", () -> garageRepository.findGarageDtosByCity("Explain-City", Pageable.unpaged()));
+        assertIndexLookup("IDX_VEHICLE_BRAND_LOWER", () -> garageRepository.findGarageDtosByVehicleBrand("Explain-Brand"));
+        assertIndexLookup("IDX_VEHICLE_MODEL_LOWER", () -> garageRepository.findGarageDtosByVehicleModel("Explain-Model"));
+        assertIndexLookup("IDX_ACCESSORY_TYPE_LOWER", () -> garageRepository.findGarageDtosByAccessoryType("Explain-Type"));
+    }
+
+    @Test
+    void cityOf_ShouldTakeTheLowercasedTextAfterTheLastComma() {
+        assertEquals("lyon", Garage.cityOf("12 Rue Neuve, Bat. B, Lyon "));
+        assertEquals("paris", Garage.cityOf("Paris"));
+    }
+
+    // Runs the finder with a single string argument, then explains the statement it sent with that argument
+    private void assertIndexLookup(String index, Runnable finder) {
+        CapturedSql.STATEMENTS.clear();
+        finder.run();
+        assertEquals(1, CapturedSql.STATEMENTS.size(), "expected one statement: " + CapturedSql.STATEMENTS);
+        String sql = CapturedSql.STATEMENTS.get(0);
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, "explain");
+        assertTrue(plan.contains(index), "expected " + index + " in plan:\n" + plan);
+        assertFalse(plan.contains("tableScan"), "unexpected table scan in plan:\n" + plan);
+    }
+
+    public static class CapturedSql implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
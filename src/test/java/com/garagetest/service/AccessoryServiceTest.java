@@ -2,13 +2,16 @@ package com.garagetest.service;
 
 import com.garagetest.dto.AccessoryDTO;
 import com.garagetest.model.Accessory;
+import com.garagetest.model.Garage;
 import com.garagetest.model.Vehicle;
 import com.garagetest.repository.AccessoryRepository;
+import com.garagetest.repository.GarageRepository;
 import com.garagetest.repository.VehicleRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -30,6 +33,12 @@ class AccessoryServiceTest {
     @Mock
     private VehicleRepository vehicleRepository;
 
+    @Mock
+    private GarageRepository garageRepository;
+
+    @Mock
+    private EntityCacheEvictor cacheEvictor;
+
     @InjectMocks
     private AccessoryService accessoryService;
 
@@ -40,10 +49,14 @@ class AccessoryServiceTest {
     @BeforeEach
     void setUp() {
         // Setup test data
+        Garage garage = new Garage();
+        garage.setId(1L);
+
         vehicle = new Vehicle();
         vehicle.setId(1L);
         vehicle.setBrand("Renault");
         vehicle.setModel("Clio");
+        vehicle.setGarage(garage);
 
         accessory = new Accessory();
         accessory.setId(1L);
@@ -60,6 +73,10 @@ class AccessoryServiceTest {
         accessoryDTO.setPrice(new BigDecimal("299.99"));
         accessoryDTO.setType("Electronics");
         accessoryDTO.setVehicleId(1L);
+
+        // Vehicle n sits in garage n unless a test moves it
+        lenient().when(vehicleRepository.findGarageIdById(anyLong()))
+                .thenAnswer(invocation -> Optional.of(invocation.<Long>getArgument(0)));
     }
 
     @Test
@@ -119,8 +136,7 @@ class AccessoryServiceTest {
     @Test
     void getAccessoriesByVehicleId_ShouldReturnAccessories_WhenVehicleExists() {
         // Arrange
-        when(vehicleRepository.existsById(1L)).thenReturn(true);
-        when(accessoryRepository.findByVehicleId(1L)).thenReturn(List.of(accessory));
+        when(accessoryRepository.findAccessoryDtosByVehicleId(1L)).thenReturn(List.of(accessoryDTO));
 
         // Act
         List<AccessoryDTO> result = accessoryService.getAccessoriesByVehicleId(1L);
@@ -129,8 +145,8 @@ class AccessoryServiceTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(accessoryDTO.getId(), result.get(0).getId());
-        verify(vehicleRepository, times(1)).existsById(1L);
-        verify(accessoryRepository, times(1)).findByVehicleId(1L);
+        verify(vehicleRepository, never()).existsById(1L);
+        verify(accessoryRepository, times(1)).findAccessoryDtosByVehicleId(1L);
     }
 
     @Test
@@ -141,15 +157,14 @@ class AccessoryServiceTest {
         // Act & Assert
         assertThrows(EntityNotFoundException.class, () -> accessoryService.getAccessoriesByVehicleId(999L));
         verify(vehicleRepository, times(1)).existsById(999L);
-        verify(accessoryRepository, never()).findByVehicleId(anyLong());
     }
 
     @Test
     void updateAccessory_ShouldReturnUpdatedAccessory_WhenAccessoryExists() {
         // Arrange
         when(accessoryRepository.findById(1L)).thenReturn(Optional.of(accessory));
-        when(vehicleRepository.findById(1L)).thenReturn(Optional.of(vehicle));
-        when(accessoryRepository.save(any(Accessory.class))).thenReturn(accessory);
+        lenient().when(vehicleRepository.findById(1L)).thenReturn(Optional.of(vehicle));
+        when(accessoryRepository.saveAndFlush(any(Accessory.class))).thenReturn(accessory);
 
         // Update DTO
         accessoryDTO.setName("Premium GPS Navigation");
@@ -163,31 +178,75 @@ class AccessoryServiceTest {
         assertEquals(accessoryDTO.getName(), result.getName());
         assertEquals(accessoryDTO.getPrice(), result.getPrice());
         verify(accessoryRepository, times(1)).findById(1L);
-        verify(accessoryRepository, times(1)).save(any(Accessory.class));
+        verify(accessoryRepository, times(1)).saveAndFlush(any(Accessory.class));
+        verify(vehicleRepository).addAccessoryTotals(1L, 0, new BigDecimal("50.00"));
+        verify(garageRepository).addAccessoryTotals(1L, 0, new BigDecimal("50.00"));
+    }
+
+    @Test
+    void createAccessory_ShouldCreditTheGarageTheVehicleIsIn_OnceItsRowIsLocked() {
+        // Arrange: the loaded vehicle still names garage 1, but a move to garage 3 has committed
+        when(vehicleRepository.findById(1L)).thenReturn(Optional.of(vehicle));
+        when(accessoryRepository.save(any(Accessory.class))).thenReturn(accessory);
+        when(vehicleRepository.findGarageIdById(1L)).thenReturn(Optional.of(3L));
+
+        // Act
+        accessoryService.createAccessory(accessoryDTO);
+
+        // Assert
+        InOrder inOrder = inOrder(vehicleRepository, garageRepository);
+        inOrder.verify(vehicleRepository).addAccessoryTotals(1L, 1, new BigDecimal("299.99"));
+        inOrder.verify(vehicleRepository).findGarageIdById(1L);
+        inOrder.verify(garageRepository).addAccessoryTotals(3L, 1, new BigDecimal("299.99"));
+        verify(garageRepository, never()).addAccessoryTotals(eq(1L), anyInt(), any());
+    }
+
+    @Test
+    void updateAccessory_ShouldMoveTotals_WhenTheAccessoryChangesVehicle() {
+        // Arrange
+        Garage otherGarage = new Garage();
+        otherGarage.setId(2L);
+        Vehicle otherVehicle = new Vehicle();
+        otherVehicle.setId(2L);
+        otherVehicle.setGarage(otherGarage);
+        when(accessoryRepository.findById(1L)).thenReturn(Optional.of(accessory));
+        when(vehicleRepository.findById(2L)).thenReturn(Optional.of(otherVehicle));
+        when(accessoryRepository.saveAndFlush(any(Accessory.class))).thenReturn(accessory);
+        accessoryDTO.setVehicleId(2L);
+        accessoryDTO.setPrice(new BigDecimal("100.00"));
+
+        // Act
+        accessoryService.updateAccessory(1L, accessoryDTO);
+
+        // Assert
+        verify(vehicleRepository).addAccessoryTotals(1L, -1, new BigDecimal("-299.99"));
+        verify(vehicleRepository).addAccessoryTotals(2L, 1, new BigDecimal("100.00"));
+        verify(garageRepository).addAccessoryTotals(1L, -1, new BigDecimal("-299.99"));
+        verify(garageRepository).addAccessoryTotals(2L, 1, new BigDecimal("100.00"));
     }
 
     @Test
     void deleteAccessory_ShouldDeleteAccessory_WhenAccessoryExists() {
         // Arrange
-        when(accessoryRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(accessoryRepository).deleteById(1L);
+        when(accessoryRepository.findById(1L)).thenReturn(Optional.of(accessory));
 
         // Act
         accessoryService.deleteAccessory(1L);
 
         // Assert
-        verify(accessoryRepository, times(1)).existsById(1L);
-        verify(accessoryRepository, times(1)).deleteById(1L);
+        verify(accessoryRepository, times(1)).delete(accessory);
+        verify(vehicleRepository).addAccessoryTotals(1L, -1, new BigDecimal("-299.99"));
+        verify(garageRepository).addAccessoryTotals(1L, -1, new BigDecimal("-299.99"));
     }
 
     @Test
     void deleteAccessory_ShouldThrowException_WhenAccessoryDoesNotExist() {
         // Arrange
-        when(accessoryRepository.existsById(999L)).thenReturn(false);
+        when(accessoryRepository.findById(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(EntityNotFoundException.class, () -> accessoryService.deleteAccessory(999L));
-        verify(accessoryRepository, times(1)).existsById(999L);
-        verify(accessoryRepository, never()).deleteById(999L);
+        verify(accessoryRepository, times(1)).findById(999L);
+        verify(accessoryRepository, never()).delete(any(Accessory.class));
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.messaging.VehiclePublisher;
+import com.garagetest.model.Garage;
+import com.garagetest.repository.GarageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EntityCacheIntegrationTest {
+
+    @Autowired
+    private GarageService garageService;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private VehiclePublisher vehiclePublisher;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        garageRepository.deleteAll();
+    }
+
+    @Test
+    void getGarageById_ShouldBeServedFromSecondLevelCache_AfterFirstLoad() {
+        // Arrange
+        Garage garage = garageRepository.save(newGarage("Cached Garage"));
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        // Act
+        garageService.getGarageById(garage.getId());
+        garageService.getGarageById(garage.getId());
+        garageService.getGarageById(garage.getId());
+
+        // Assert
+        assertEquals(1, statistics.getEntityLoadCount());
+        assertEquals(2, statistics.getSecondLevelCacheHitCount());
+        assertNotNull(meterRegistry.find("hibernate.second.level.cache.requests").tag("result", "hit").functionCounter());
+    }
+
+    @Test
+    void createVehicle_ShouldEvictOnlyTheGarageWhoseCounterChanged() {
+        // Arrange
+        Garage target = garageRepository.save(newGarage("Target Garage"));
+        Garage other = garageRepository.save(newGarage("Other Garage"));
+        garageService.getGarageById(target.getId());
+        garageService.getGarageById(other.getId());
+
+        // Act
+        vehicleService.createVehicle(new VehicleDTO(null, "Renault", "Clio", 2022, "Gasoline", target.getId()));
+
+        // Assert
+        assertFalse(servedFromCache(target.getId()));
+        assertTrue(servedFromCache(other.getId()));
+        assertEquals(1, garageRepository.findById(target.getId()).orElseThrow().getVehicleCount());
+    }
+
+    @Test
+    void createVehicle_ShouldKeepReadersThatStartedBeforeTheCommit_FromCachingTheGarage() throws Exception {
+        // Arrange
+        Garage garage = garageRepository.save(newGarage("Raced Garage"));
+        entityManagerFactory.getCache().evictAll();
+        CountDownLatch readerStarted = new CountDownLatch(1);
+        CountDownLatch writerCommitted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Act: a reader whose transaction predates the commit could have read the old counter
+        Future<?> reader = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            readerStarted.countDown();
+            try {
+                writerCommitted.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            garageRepository.findById(garage.getId());
+        }));
+        readerStarted.await(10, TimeUnit.SECONDS);
+        vehicleService.createVehicle(new VehicleDTO(null, "Renault", "Clio", 2022, "Gasoline", garage.getId()));
+        writerCommitted.countDown();
+        reader.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert
+        assertFalse(servedFromCache(garage.getId()));
+        assertTrue(servedFromCache(garage.getId()));
+        assertEquals(1, garageRepository.findById(garage.getId()).orElseThrow().getVehicleCount());
+    }
+
+    // Reads the garage in a new transaction; true when the second-level cache served it
+    private boolean servedFromCache(Long garageId) {
+        statistics.clear();
+        garageRepository.findById(garageId);
+        return statistics.getSecondLevelCacheHitCount() == 1;
+    }
+
+    private Garage newGarage(String name) {
+        Garage garage = new Garage();
+        garage.setName(name);
+        garage.setAddress("1 Test Street, Test City");
+        garage.setTelephone("123-456-7890");
+        garage.setEmail("test@garage.com");
+        return garage;
+    }
+}
@@ -0,0 +1,139 @@
+package com.garagetest.service;
+
+import com.garagetest.messaging.VehiclePublisher;
+import com.garagetest.model.Accessory;
+import com.garagetest.model.Garage;
+import com.garagetest.model.Vehicle;
+import com.garagetest.repository.AccessoryRepository;
+import com.garagetest.repository.GarageRepository;
+import com.garagetest.repository.VehicleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class FetchPlanQueryBudgetTest {
+
+    private static final int VEHICLES = 10;
+
+    @Autowired
+    private GarageService garageService;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private AccessoryService accessoryService;
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private AccessoryRepository accessoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private VehiclePublisher vehiclePublisher;
+
+    private QueryBudget queryBudget;
+    private Garage garage;
+    private final List<Vehicle> vehicles = new ArrayList<>();
+    private final List<Accessory> accessories = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        queryBudget = new QueryBudget(entityManagerFactory);
+        garage = garageRepository.save(newGarage("Budget Garage"));
+
+        // Each vehicle sits in its own garage except for the first garage's fleet, so an
+        // eager many-to-one would cost one select per distinct vehicle and garage
+        for (int i = 0; i < VEHICLES; i++) {
+            Garage owner = i % 2 == 0 ? garage : garageRepository.save(newGarage("Other Garage " + i));
+            Vehicle vehicle = new Vehicle();
+            vehicle.setBrand("Peugeot");
+            vehicle.setModel("308");
+            vehicle.setManufacturingYear(2020);
+            vehicle.setFuelType("Diesel");
+            vehicle.setGarage(owner);
+            vehicles.add(vehicleRepository.save(vehicle));
+
+            Accessory accessory = new Accessory();
+            accessory.setName("Roof box " + i);
+            accessory.setDescription("Roof box");
+            accessory.setPrice(new BigDecimal("199.90"));
+            accessory.setType("Budget");
+            accessory.setVehicle(vehicles.get(i));
+            accessories.add(accessoryRepository.save(accessory));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        vehicles.clear();
+        accessories.clear();
+        garageRepository.deleteAll();
+    }
+
+    @Test
+    void singleEntityReads_ShouldNotLoadTheirParents() {
+        queryBudget.expectAtMost(1, () -> garageService.getGarageById(garage.getId()));
+        queryBudget.expectAtMost(1, () -> vehicleService.getVehicleById(vehicles.get(0).getId()));
+        queryBudget.expectAtMost(1, () -> accessoryService.getAccessoryById(accessories.get(0).getId()));
+    }
+
+    @Test
+    void entityFinders_ShouldNotSelectPerParent() {
+        List<Accessory> byType = queryBudget.expectAtMost(1, () -> accessoryRepository.findByTypeIgnoreCase("budget"));
+        assertEquals(VEHICLES, byType.size());
+
+        // The fetch join hands back initialized vehicles, usable outside the transaction
+        List<Accessory> byGarage = queryBudget.expectAtMost(1, () -> accessoryRepository.findByGarageId(garage.getId()));
+        assertEquals(VEHICLES / 2, byGarage.size());
+        byGarage.forEach(accessory -> assertEquals("308", accessory.getVehicle().getModel()));
+
+        // The entity graph loads each vehicle's accessories in the same select
+        List<Vehicle> byGarageWithAccessories = queryBudget.expectAtMost(1, () -> vehicleRepository.findByGarageId(garage.getId()));
+        byGarageWithAccessories.forEach(vehicle -> assertEquals(1, vehicle.getAccessories().size()));
+    }
+
+    @Test
+    void walkingAGarage_ShouldBatchCollectionLoads_RegardlessOfFleetSize() {
+        // garage, its vehicles, then every vehicle's accessories in one batched select
+        int accessoryCount = queryBudget.expectAtMost(3, () -> transactionTemplate.execute(status ->
+                garageRepository.findById(garage.getId()).orElseThrow().getVehicles().stream()
+                        .mapToInt(vehicle -> vehicle.getAccessories().size())
+                        .sum()));
+
+        assertEquals(VEHICLES / 2, accessoryCount);
+    }
+
+    private Garage newGarage(String name) {
+        Garage newGarage = new Garage();
+        newGarage.setName(name);
+        newGarage.setAddress("1 Budget Street, Test City");
+        newGarage.setTelephone("123-456-7890");
+        newGarage.setEmail("budget@garage.com");
+        return newGarage;
+    }
+}
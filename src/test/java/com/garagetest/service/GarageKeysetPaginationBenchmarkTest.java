@@ -0,0 +1,94 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.GarageCursor;
+import com.garagetest.dto.GarageDTO;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class GarageKeysetPaginationBenchmarkTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int DEEP_PAGE = 10_000;
+    private static final int GARAGES = PAGE_SIZE * DEEP_PAGE;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private GarageService garageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < GARAGES; i++) {
+            rows.add(new Object[]{String.format("Garage %06d", i), i + " Bench Street, Bench City"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO garage (name, address, telephone, email, vehicle_count) "
+                + "VALUES (?, ?, '123-456-7890', 'bench@garage.com', 0)", rows);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM garage");
+    }
+
+    @Test
+    void compareOffsetAndKeysetPagesAtDepth() {
+        PageRequest firstPage = PageRequest.of(0, PAGE_SIZE, Sort.by("name", "id"));
+        PageRequest deepPage = PageRequest.of(DEEP_PAGE - 1, PAGE_SIZE, Sort.by("name", "id"));
+        // The cursor a client would hold after walking to the deep page
+        List<GarageDTO> previous = garageService.getAllGarages(deepPage.previous()).getContent();
+        GarageCursor deepCursor = GarageCursor.of(previous.get(previous.size() - 1));
+
+        assertEquals(garageService.getAllGarages(deepPage).getContent(),
+                garageService.getGaragesAfter(deepCursor, PAGE_SIZE).getContent());
+
+        log.info("Offset page 1: {} us, page {}: {} us (with count query)",
+                micros(() -> garageService.getAllGarages(firstPage)), DEEP_PAGE,
+                micros(() -> garageService.getAllGarages(deepPage)));
+        log.info("Keyset page 1: {} us, page {}: {} us",
+                micros(() -> garageService.getGaragesAfter(GarageCursor.START, PAGE_SIZE)), DEEP_PAGE,
+                micros(() -> garageService.getGaragesAfter(deepCursor, PAGE_SIZE)));
+    }
+
+    // Median over several cold-cache rounds after a warm-up
+    private long micros(Supplier<?> call) {
+        call.get();
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+            long start = System.nanoTime();
+            call.get();
+            samples[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2];
+    }
+}
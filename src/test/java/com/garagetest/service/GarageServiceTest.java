@@ -1,9 +1,14 @@
 package com.garagetest.service;
 
 import com.garagetest.dto.GarageDTO;
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.messaging.VehiclePublisher;
 import com.garagetest.model.Garage;
+import com.garagetest.model.OpeningHours;
 import com.garagetest.model.OpeningTime;
+import com.garagetest.repository.AccessoryRepository;
 import com.garagetest.repository.GarageRepository;
+import com.garagetest.repository.VehicleRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +16,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -26,6 +32,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +41,27 @@ class GarageServiceTest {
     @Mock
     private GarageRepository garageRepository;
 
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    @Mock
+    private AccessoryRepository accessoryRepository;
+
+    @Mock
+    private VehiclePublisher vehiclePublisher;
+
+    @Mock
+    private VehicleReadModel readModel;
+
+    @Mock
+    private GarageTextIndex textIndex;
+
+    @Mock
+    private OpeningHoursIndex openingHoursIndex;
+
+    @Mock
+    private VehicleStatsRollup statsRollup;
+
     @InjectMocks
     private GarageService garageService;
 
@@ -73,7 +101,7 @@ class GarageServiceTest {
         garage.setAddress("123 Test Street, Test City");
         garage.setTelephone("123-456-7890");
         garage.setEmail("test@garage.com");
-        garage.setOpeningHours(openingHours);
+        garage.setOpeningHours(OpeningHours.of(openingHours));
 
         garageDTO = new GarageDTO();
         garageDTO.setId(1L);
@@ -81,7 +109,7 @@ class GarageServiceTest {
         garageDTO.setAddress("123 Test Street, Test City");
         garageDTO.setTelephone("123-456-7890");
         garageDTO.setEmail("test@garage.com");
-        garageDTO.setOpeningHours(openingHours);
+        garageDTO.setOpeningHours(OpeningHours.of(openingHours));
     }
 
     @Test
@@ -127,9 +155,9 @@ class GarageServiceTest {
     @Test
     void getAllGarages_ShouldReturnPageOfGarages() {
         // Arrange
-        Page<Garage> garagePage = new PageImpl<>(List.of(garage));
+        Page<GarageDTO> garagePage = new PageImpl<>(List.of(garageDTO));
         Pageable pageable = PageRequest.of(0, 10);
-        when(garageRepository.findAll(pageable)).thenReturn(garagePage);
+        when(garageRepository.findGarageDtos(pageable)).thenReturn(garagePage);
 
         // Act
         Page<GarageDTO> result = garageService.getAllGarages(pageable);
@@ -138,14 +166,14 @@ class GarageServiceTest {
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
         assertEquals(garageDTO.getId(), result.getContent().get(0).getId());
-        verify(garageRepository, times(1)).findAll(pageable);
+        verify(garageRepository, times(1)).findGarageDtos(pageable);
     }
 
     @Test
     void updateGarage_ShouldReturnUpdatedGarage_WhenGarageExists() {
         // Arrange
         when(garageRepository.findById(1L)).thenReturn(Optional.of(garage));
-        when(garageRepository.save(any(Garage.class))).thenReturn(garage);
+        when(garageRepository.saveAndFlush(any(Garage.class))).thenReturn(garage);
 
         // Update DTO
         garageDTO.setName("Updated Garage");
@@ -157,7 +185,19 @@ class GarageServiceTest {
         assertNotNull(result);
         assertEquals(garageDTO.getName(), result.getName());
         verify(garageRepository, times(1)).findById(1L);
-        verify(garageRepository, times(1)).save(any(Garage.class));
+        verify(garageRepository, times(1)).saveAndFlush(any(Garage.class));
+    }
+
+    @Test
+    void updateGarage_ShouldRejectStaleVersion_WithoutWriting() {
+        // Arrange
+        garage.setVersion(3L);
+        when(garageRepository.findById(1L)).thenReturn(Optional.of(garage));
+        garageDTO.setVersion(2L);
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> garageService.updateGarage(1L, garageDTO));
+        verify(garageRepository, never()).saveAndFlush(any(Garage.class));
     }
 
     @Test
@@ -168,31 +208,71 @@ class GarageServiceTest {
         // Act & Assert
         assertThrows(EntityNotFoundException.class, () -> garageService.updateGarage(999L, garageDTO));
         verify(garageRepository, times(1)).findById(999L);
-        verify(garageRepository, never()).save(any(Garage.class));
+        verify(garageRepository, never()).saveAndFlush(any(Garage.class));
+    }
+
+    @Test
+    void deleteGarage_ShouldBulkDeleteItsVehiclesAndPublishTheirDeletion() {
+        // Arrange
+        VehicleDTO vehicle = new VehicleDTO(7L, "Renault", "Clio", 2022, "Gasoline", 1L, 2L);
+        when(garageRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(garage));
+        when(vehicleRepository.findVehicleDtosByGarageId(1L)).thenReturn(List.of(vehicle));
+
+        // Act
+        garageService.deleteGarage(1L);
+
+        // Assert
+        verify(accessoryRepository, times(1)).deleteByGarageId(1L);
+        verify(vehicleRepository, times(1)).deleteByGarageId(1L);
+        verify(vehiclePublisher, times(1)).publishVehicleDeleted(vehicle, 2L);
+        verify(statsRollup, times(1)).recordAfterCommit(List.of(vehicle), List.of());
+        verify(garageRepository, times(1)).delete(garage);
+        verify(garageRepository, never()).existsById(anyLong());
+        verify(textIndex, times(1)).removeAfterCommit(1L);
+        verify(openingHoursIndex, times(1)).removeAfterCommit(1L);
     }
 
     @Test
-    void deleteGarage_ShouldDeleteGarage_WhenGarageExists() {
+    void deleteGarage_ShouldSkipTheBulkDeletes_WhenGarageIsEmpty() {
         // Arrange
-        when(garageRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(garageRepository).deleteById(1L);
+        when(garageRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(garage));
+        when(vehicleRepository.findVehicleDtosByGarageId(1L)).thenReturn(List.of());
 
         // Act
         garageService.deleteGarage(1L);
 
         // Assert
-        verify(garageRepository, times(1)).existsById(1L);
-        verify(garageRepository, times(1)).deleteById(1L);
+        verify(accessoryRepository, never()).deleteByGarageId(anyLong());
+        verify(vehicleRepository, never()).deleteByGarageId(anyLong());
+        verify(garageRepository, times(1)).delete(garage);
     }
 
     @Test
     void deleteGarage_ShouldThrowException_WhenGarageDoesNotExist() {
         // Arrange
-        when(garageRepository.existsById(999L)).thenReturn(false);
+        when(garageRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(EntityNotFoundException.class, () -> garageService.deleteGarage(999L));
-        verify(garageRepository, times(1)).existsById(999L);
-        verify(garageRepository, never()).deleteById(999L);
+        verify(garageRepository, times(1)).findByIdForUpdate(999L);
+        verify(vehicleRepository, never()).deleteByGarageId(999L);
+        verify(garageRepository, never()).delete(any(Garage.class));
+    }
+
+    @Test
+    void getGaragesByName_ShouldLoadOnlyThePageRows_WhenTextIndexAnswers() {
+        // Arrange
+        GarageDTO second = new GarageDTO();
+        second.setId(2L);
+        when(textIndex.findIdsByName("garage")).thenReturn(Optional.of(List.of(1L, 2L, 3L)));
+        when(garageRepository.findGarageDtosByIdIn(List.of(2L))).thenReturn(List.of(second));
+
+        // Act
+        Page<GarageDTO> result = garageService.getGaragesByName("garage", PageRequest.of(1, 1));
+
+        // Assert
+        assertEquals(List.of(second), result.getContent());
+        assertEquals(3, result.getTotalElements());
+        verify(garageRepository, never()).findGarageDtosByName(any(), any());
     }
-}
\ No newline at end of file
+}
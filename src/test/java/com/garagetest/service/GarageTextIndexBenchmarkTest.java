@@ -0,0 +1,131 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.GarageDTO;
+import com.garagetest.repository.GarageRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@Slf4j
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "garage.text-index.enabled=true"})
+@ActiveProfiles("test")
+class GarageTextIndexBenchmarkTest {
+
+    private static final int GARAGES = 1_000_000;
+    private static final int ROUNDS = 20;
+    private static final String[] WORDS = {"auto", "motors", "garage", "service", "repair", "tyres", "central",
+            "express", "premium", "classic", "city", "family", "quick", "best", "euro", "star"};
+    private static final String[] STREETS = {"Main", "High", "Station", "Church", "Mill", "Park", "Victoria", "Green"};
+
+    @Autowired
+    private GarageService garageService;
+
+    @Autowired
+    private GarageTextIndex textIndex;
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < GARAGES; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String city = "city" + random.nextInt(5_000);
+            String address = random.nextInt(500) + " " + STREETS[random.nextInt(STREETS.length)] + " Street, " + city;
+            rows.add(new Object[]{name, address, city});
+            if (rows.size() == 10_000) {
+                insert(rows);
+                rows.clear();
+            }
+        }
+        insert(rows);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM garage");
+    }
+
+    @Test
+    void compareIndexedAndLikeSearches() {
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        textIndex.rebuild();
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        System.gc();
+        log.info("Indexed {} garages in {} ms, about {} MB of heap", textIndex.size(), buildMillis,
+                (usedHeap() - heapBefore) / (1024 * 1024));
+
+        PageRequest page = PageRequest.of(0, 10);
+        for (String term : List.of("123456", "press pre", "tyres")) {
+            Page<GarageDTO> indexed = garageService.getGaragesByName(term, page);
+            Page<GarageDTO> scanned = garageRepository.findGarageDtosByName(term, page);
+            assertEquals(scanned.getTotalElements(), indexed.getTotalElements());
+            log.info("Name '{}' ({} matches): index {} us, LIKE scan {} us", term, indexed.getTotalElements(),
+                    micros(() -> garageService.getGaragesByName(term, page)),
+                    micros(() -> garageRepository.findGarageDtosByName(term, page)));
+        }
+        for (String term : List.of("city4999", "city12")) {
+            Page<GarageDTO> indexed = garageService.getGaragesByCity(term, page);
+            assertEquals(garageRepository.findGarageDtosByCity(term, page).getTotalElements(), indexed.getTotalElements());
+            log.info("City '{}' ({} matches): index {} us, city column {} us", term, indexed.getTotalElements(),
+                    micros(() -> garageService.getGaragesByCity(term, page)),
+                    micros(() -> garageRepository.findGarageDtosByCity(term, page)));
+        }
+        log.info("Index lookup alone for name '123456': {} us",
+                micros(() -> textIndex.findIdsByName("123456")));
+    }
+
+    private void insert(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate("INSERT INTO garage (name, address, city, telephone, email, vehicle_count) "
+                + "VALUES (?, ?, ?, '123-456-7890', 'bench@garage.com', 0)", rows);
+    }
+
+    // Median over several rounds after a warm-up, with the query cache cleared so every round runs SQL
+    private long micros(Supplier<?> call) {
+        call.get();
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+            long start = System.nanoTime();
+            call.get();
+            samples[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2];
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,95 @@
+package com.garagetest.service;
+
+import com.garagetest.repository.GarageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GarageTextIndexTest {
+
+    private GarageRepository garageRepository;
+    private GarageTextIndex textIndex;
+
+    @BeforeEach
+    void setUp() {
+        garageRepository = mock(GarageRepository.class);
+        textIndex = new GarageTextIndex(garageRepository, true);
+    }
+
+    @Test
+    void lookups_ShouldBeEmpty_UntilRebuilt() {
+        textIndex.put(1L, "Downtown Auto", "1 Main Street, Lyon");
+
+        assertEquals(Optional.empty(), textIndex.findIdsByName("auto"));
+
+        rebuildWith(new Object[]{1L, "Downtown Auto", "1 Main Street, Lyon"},
+                new Object[]{2L, "Uptown Motors", "2 High Street, Lyon"});
+
+        assertEquals(2, textIndex.size());
+        assertEquals(Optional.of(List.of(1L)), textIndex.findIdsByName("TOWN AU"));
+        assertEquals(Optional.of(List.of(1L, 2L)), textIndex.findIdsByName("town"));
+        assertEquals(Optional.of(List.of(1L, 2L)), textIndex.findIdsByCity("ly"));
+    }
+
+    @Test
+    void findIdsByName_ShouldCheckCandidates_AgainstTheWholeTerm() {
+        rebuildWith(new Object[]{1L, "abcd xbcx", "1 Street, Paris"});
+
+        // Every trigram of "abcx" occurs in the name, but the term itself does not
+        assertEquals(Optional.of(List.of()), textIndex.findIdsByName("abcx"));
+        assertEquals(Optional.of(List.of(1L)), textIndex.findIdsByName("bcd x"));
+    }
+
+    @Test
+    void findIdsByCity_ShouldMatchTheStartOfTheCity_NotTheStreet() {
+        rebuildWith(new Object[]{1L, "A", "1 Paris Street, Lyon"},
+                new Object[]{2L, "B", "2 Lyon Road, Paris"});
+
+        assertEquals(Optional.of(List.of(2L)), textIndex.findIdsByCity("Paris"));
+        assertEquals(Optional.of(List.of(1L)), textIndex.findIdsByCity("lyo"));
+    }
+
+    @Test
+    void putAndRemove_ShouldReindexUpdatesAndDropDeletes() {
+        rebuildWith(new Object[]{1L, "Downtown Auto", "1 Main Street, Lyon"},
+                new Object[]{2L, "Uptown Motors", "2 High Street, Lyon"});
+
+        textIndex.put(1L, "Riverside Garage", "1 Quay, Nantes");
+        textIndex.remove(2L);
+        textIndex.put(3L, "Downtown Tyres", "3 Main Street, Lyon");
+
+        assertEquals(Optional.of(List.of(3L)), textIndex.findIdsByName("downtown"));
+        assertEquals(Optional.of(List.of(1L)), textIndex.findIdsByName("river"));
+        assertEquals(Optional.of(List.of()), textIndex.findIdsByName("motors"));
+        assertEquals(Optional.of(List.of(1L)), textIndex.findIdsByCity("nantes"));
+        assertEquals(2, textIndex.size());
+    }
+
+    @Test
+    void putAndRemove_ShouldReuseFreedSlots_AndKeepPostingsSorted() {
+        rebuildWith(new Object[]{1L, "Downtown Auto", "1 Main Street, Lyon"},
+                new Object[]{2L, "Uptown Motors", "2 High Street, Lyon"},
+                new Object[]{3L, "Midtown Garage", "3 Low Street, Lyon"});
+
+        for (long id = 4; id < 1_000; id++) {
+            textIndex.remove(id - 3);
+            textIndex.put(id, "Town Garage " + id, id + " Main Street, Lyon");
+        }
+
+        assertEquals(3, textIndex.slotCount());
+        assertEquals(Optional.of(List.of(997L, 998L, 999L)), textIndex.findIdsByName("town"));
+        assertEquals(Optional.of(List.of(998L)), textIndex.findIdsByName("garage 998"));
+        assertEquals(Optional.of(List.of(997L, 998L, 999L)), textIndex.findIdsByCity("lyon"));
+    }
+
+    private void rebuildWith(Object[]... rows) {
+        when(garageRepository.streamGarageTexts()).thenReturn(Stream.of(rows));
+        textIndex.rebuild();
+    }
+}
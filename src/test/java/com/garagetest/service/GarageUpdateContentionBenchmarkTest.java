@@ -0,0 +1,149 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.GarageDTO;
+import com.garagetest.messaging.VehiclePublisher;
+import com.garagetest.model.Garage;
+import com.garagetest.repository.GarageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class GarageUpdateContentionBenchmarkTest {
+
+    private static final int WRITERS = 32;
+    private static final int UPDATES_PER_WRITER = 100;
+    // Time an editor spends between reading a garage and writing it back
+    private static final long EDIT_MICROS = 500;
+
+    @Autowired
+    private GarageService garageService;
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private VehiclePublisher vehiclePublisher;
+
+    @AfterEach
+    void tearDown() {
+        garageRepository.deleteAll();
+    }
+
+    @Test
+    void compareOptimisticWithPessimisticLocking() throws Exception {
+        for (int garages : new int[]{1, 4, 64}) {
+            List<Long> ids = garages(garages);
+            AtomicLong retries = new AtomicLong();
+            long optimistic = run(ids, id -> updateOptimistically(id, retries));
+            long pessimistic = run(ids, this::updateUnderRowLock);
+
+            assertEquals(2L * WRITERS * UPDATES_PER_WRITER, totalEdits(ids));
+            log.info("{} writers on {} garages: optimistic {} updates/s ({} retries per update), pessimistic {} updates/s",
+                    WRITERS, garages, perSecond(optimistic), String.format("%.2f", retries.get() / (double) (WRITERS * UPDATES_PER_WRITER)),
+                    perSecond(pessimistic));
+            garageRepository.deleteAll();
+        }
+    }
+
+    // Read, edit without holding anything, write back conditionally; start over on a conflict
+    private void updateOptimistically(Long id, AtomicLong retries) {
+        while (true) {
+            GarageDTO garage = garageService.getGarageById(id);
+            edit(garage);
+            try {
+                garageService.updateGarage(id, garage);
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                retries.incrementAndGet();
+            }
+        }
+    }
+
+    // Lock the row for the whole read-edit-write
+    private void updateUnderRowLock(Long id) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Garage garage = garageRepository.findByIdForUpdate(id).orElseThrow();
+            GarageDTO edited = new GarageDTO();
+            edited.setName(garage.getName());
+            edit(edited);
+            garage.setName(edited.getName());
+        });
+    }
+
+    // Counts each edit in the name, so lost updates would show in the total
+    private static void edit(GarageDTO garage) {
+        long until = System.nanoTime() + EDIT_MICROS * 1_000;
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+        garage.setName(String.valueOf(Long.parseLong(garage.getName()) + 1));
+    }
+
+    private long run(List<Long> ids, Consumer<Long> update) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+                        update.accept(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<Long> garages(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Garage garage = new Garage();
+            garage.setName("0");
+            garage.setAddress(i + " Bench Street, Bench City");
+            garage.setTelephone("123-456-7890");
+            garage.setEmail("bench@garage.com");
+            ids.add(garageRepository.save(garage).getId());
+        }
+        return ids;
+    }
+
+    private long totalEdits(List<Long> ids) {
+        return garageRepository.findAllById(ids).stream().mapToLong(garage -> Long.parseLong(garage.getName())).sum();
+    }
+
+    private static long perSecond(long nanos) {
+        return WRITERS * UPDATES_PER_WRITER * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,108 @@
+package com.garagetest.service;
+
+import com.garagetest.model.Accessory;
+import com.garagetest.model.Garage;
+import com.garagetest.model.Vehicle;
+import com.garagetest.repository.AccessoryRepository;
+import com.garagetest.repository.GarageRepository;
+import com.garagetest.repository.VehicleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ListQueryStatementCountTest {
+
+    @Autowired
+    private GarageService garageService;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private AccessoryService accessoryService;
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private AccessoryRepository accessoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private QueryBudget queryBudget;
+    private Garage garage;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        queryBudget = new QueryBudget(entityManagerFactory);
+
+        garage = new Garage();
+        garage.setName("Projection Garage");
+        garage.setAddress("1 Projection Street, Lyon");
+        garage.setTelephone("123-456-7890");
+        garage.setEmail("projection@garage.com");
+        garage = garageRepository.save(garage);
+
+        for (int i = 0; i < 3; i++) {
+            Vehicle v = new Vehicle();
+            v.setBrand("Peugeot");
+            v.setModel("308");
+            v.setManufacturingYear(2020 + i);
+            v.setFuelType("Diesel");
+            v.setGarage(garage);
+            vehicle = vehicleRepository.save(v);
+
+            Accessory accessory = new Accessory();
+            accessory.setName("Roof box " + i);
+            accessory.setDescription("Roof box");
+            accessory.setPrice(new BigDecimal("199.90"));
+            accessory.setType("Storage");
+            accessory.setVehicle(vehicle);
+            accessoryRepository.save(accessory);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        garageRepository.deleteAll();
+    }
+
+    @Test
+    void listCalls_ShouldIssueOneStatement_WithoutHydratingEntities() {
+        assertSingleStatement(3, () -> vehicleService.getVehiclesByGarageId(garage.getId()));
+        assertSingleStatement(3, () -> vehicleService.getVehiclesByModel("308"));
+        assertSingleStatement(3, () -> accessoryService.getAccessoriesByType("storage"));
+        assertSingleStatement(1, () -> accessoryService.getAccessoriesByVehicleId(vehicle.getId()));
+        assertSingleStatement(1, () -> garageService.getGaragesByVehicleBrand("peugeot"));
+        assertSingleStatement(1, () -> garageService.getGaragesByVehicleModel("308"));
+        assertSingleStatement(1, () -> garageService.getGaragesByAccessoryType("STORAGE"));
+        // A first page that is not full needs no count query
+        assertSingleStatement(1, () -> garageService.getGaragesByName("projection", PageRequest.of(0, 10)).getContent());
+        assertSingleStatement(1, () -> garageService.getGaragesByCity("lyon", PageRequest.of(0, 10)).getContent());
+    }
+
+    private void assertSingleStatement(int expectedSize, Supplier<Collection<?>> listCall) {
+        Collection<?> result = queryBudget.expectAtMost(1, listCall);
+
+        assertEquals(expectedSize, result.size());
+        assertEquals(0, queryBudget.statistics().getEntityLoadCount());
+    }
+}
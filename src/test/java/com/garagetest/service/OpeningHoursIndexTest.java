@@ -0,0 +1,114 @@
+package com.garagetest.service;
+
+import com.garagetest.model.OpeningHours;
+import com.garagetest.model.OpeningTime;
+import com.garagetest.repository.GarageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OpeningHoursIndexTest {
+
+    // 2026-10-19 is a Monday
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2026, 10, 19, 0, 0);
+
+    private GarageRepository garageRepository;
+    private OpeningHoursIndex index;
+
+    @BeforeEach
+    void setUp() {
+        garageRepository = mock(GarageRepository.class);
+        index = new OpeningHoursIndex(garageRepository, true);
+    }
+
+    @Test
+    void intervals_ShouldMergeOverlapsAndWrapPastSunday() {
+        Map<DayOfWeek, List<OpeningTime>> hours = new HashMap<>();
+        hours.put(DayOfWeek.MONDAY, List.of(time(9, 0, 12, 0), time(11, 0, 14, 0)));
+        hours.put(DayOfWeek.SUNDAY, List.of(time(22, 0, 2, 0)));
+
+        assertArrayEquals(new int[]{0, 120, 540, 840, 9960, 10080}, OpeningHoursIndex.intervals(OpeningHours.of(hours)));
+    }
+
+    @Test
+    void findIdsOpenAt_ShouldBeEmpty_UntilRebuilt() {
+        index.put(1L, OpeningHoursIndex.intervals(OpeningHours.of(Map.of(DayOfWeek.MONDAY, List.of(time(9, 0, 18, 0))))));
+
+        assertEquals(Optional.empty(), index.findIdsOpenAt(MONDAY.withHour(10)));
+
+        when(garageRepository.streamGarageOpeningHours()).thenReturn(Stream.<Object[]>of(
+                new Object[]{1L, OpeningHours.of(Map.of(DayOfWeek.MONDAY, List.of(time(9, 0, 18, 0))))},
+                new Object[]{2L, OpeningHours.of(Map.of(DayOfWeek.MONDAY, List.of(time(8, 0, 12, 0), time(13, 0, 17, 0))))}));
+        index.rebuild();
+
+        assertEquals(Optional.of(List.of(1L, 2L)), index.findIdsOpenAt(MONDAY.withHour(10)));
+        assertEquals(Optional.of(List.of(1L)), index.findIdsOpenAt(MONDAY.withHour(12).withMinute(30)));
+        assertEquals(Optional.of(List.of(2L)), index.findIdsOpenAt(MONDAY.withHour(8)));
+        assertEquals(Optional.of(List.of()), index.findIdsOpenAt(MONDAY.withHour(18)));
+    }
+
+    @Test
+    void put_ShouldReplacePreviousHours_AndEmptyHoursRemoveTheGarage() {
+        rebuildEmpty();
+        index.put(1L, OpeningHoursIndex.intervals(OpeningHours.of(Map.of(DayOfWeek.MONDAY, List.of(time(9, 0, 18, 0))))));
+        index.put(1L, OpeningHoursIndex.intervals(OpeningHours.of(Map.of(DayOfWeek.TUESDAY, List.of(time(9, 0, 18, 0))))));
+        index.put(2L, OpeningHoursIndex.intervals(OpeningHours.of(Map.of(DayOfWeek.MONDAY, List.of(time(9, 0, 18, 0))))));
+        index.put(2L, new int[0]);
+
+        assertEquals(Optional.of(List.of()), index.findIdsOpenAt(MONDAY.withHour(10)));
+        assertEquals(Optional.of(List.of(1L)), index.findIdsOpenAt(MONDAY.plusDays(1).withHour(10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void findIdsOpenAt_ShouldAgreeWithCheckingEveryGarage() {
+        rebuildEmpty();
+        Random random = new Random(7);
+        Map<Long, OpeningHours> garages = new HashMap<>();
+        for (long id = 1; id <= 500; id++) {
+            Map<DayOfWeek, List<OpeningTime>> hours = new EnumMap<>(DayOfWeek.class);
+            for (DayOfWeek day : DayOfWeek.values()) {
+                List<OpeningTime> times = new ArrayList<>();
+                for (int i = random.nextInt(3); i > 0; i--) {
+                    times.add(time(random.nextInt(24), random.nextInt(60), random.nextInt(24), random.nextInt(60)));
+                }
+                hours.put(day, times);
+            }
+            garages.put(id, OpeningHours.of(hours));
+            index.put(id, OpeningHoursIndex.intervals(garages.get(id)));
+        }
+
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime at = MONDAY.plusMinutes(random.nextInt(OpeningHoursIndex.MINUTES_PER_WEEK));
+            List<Long> expected = garages.entrySet().stream()
+                    .filter(garage -> OpeningHoursIndex.isOpenAt(garage.getValue(), at))
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .toList();
+            assertEquals(Optional.of(expected), index.findIdsOpenAt(at), "at " + at);
+        }
+    }
+
+    private void rebuildEmpty() {
+        when(garageRepository.streamGarageOpeningHours()).thenReturn(Stream.empty());
+        index.rebuild();
+    }
+
+    private static OpeningTime time(int startHour, int startMinute, int endHour, int endMinute) {
+        return new OpeningTime(LocalTime.of(startHour, startMinute), LocalTime.of(endHour, endMinute));
+    }
+}
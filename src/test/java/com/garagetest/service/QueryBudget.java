@@ -0,0 +1,45 @@
+package com.garagetest.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a call against cold second-level and query caches and fails when it prepares more
+ * SQL statements than its budget, as counted by Hibernate statistics.
+ */
+final class QueryBudget {
+
+    private final SessionFactory sessionFactory;
+
+    QueryBudget(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    <T> T expectAtMost(long statements, Supplier<T> call) {
+        sessionFactory.getCache().evictAllRegions();
+        statistics().clear();
+
+        T result = call.get();
+
+        long prepared = statistics().getPrepareStatementCount();
+        assertTrue(prepared <= statements,
+                () -> "Expected at most " + statements + " statements but " + prepared + " were prepared");
+        return result;
+    }
+
+    void expectAtMost(long statements, Runnable call) {
+        expectAtMost(statements, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    Statistics statistics() {
+        return sessionFactory.getStatistics();
+    }
+}
@@ -0,0 +1,100 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.VehicleBatchResultDTO;
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.messaging.VehiclePublisher;
+import com.garagetest.model.Garage;
+import com.garagetest.repository.GarageRepository;
+import com.garagetest.repository.VehicleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class VehicleBatchImportBenchmarkTest {
+
+    private static final int GARAGES = 40;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @MockitoBean
+    private VehiclePublisher vehiclePublisher;
+
+    private List<Long> garageIds;
+
+    @BeforeEach
+    void setUp() {
+        garageIds = new ArrayList<>();
+        for (int i = 0; i < GARAGES; i++) {
+            Garage garage = new Garage();
+            garage.setName("Garage " + i);
+            garage.setAddress(i + " Bench Street, Bench City");
+            garage.setTelephone("123-456-7890");
+            garage.setEmail("bench@garage.com");
+            garageIds.add(garageRepository.save(garage).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        garageRepository.deleteAll();
+    }
+
+    @Test
+    void compareSingleInsertsWithBatchImport() {
+        List<VehicleDTO> fleet = fleet();
+        List<VehicleDTO> firstHalf = fleet.subList(0, fleet.size() / 2);
+        List<VehicleDTO> secondHalf = fleet.subList(fleet.size() / 2, fleet.size());
+
+        long start = System.nanoTime();
+        firstHalf.forEach(vehicleService::createVehicle);
+        long singleNanos = System.nanoTime() - start;
+
+        // Batches are capped, so the second half goes in as many as it takes
+        start = System.nanoTime();
+        List<VehicleBatchResultDTO> results = new ArrayList<>();
+        for (int from = 0; from < secondHalf.size(); from += VehicleService.MAX_BATCH) {
+            results.addAll(vehicleService.createVehicles(
+                    secondHalf.subList(from, Math.min(from + VehicleService.MAX_BATCH, secondHalf.size()))));
+        }
+        long batchNanos = System.nanoTime() - start;
+
+        assertEquals(secondHalf.size(), results.stream()
+                .filter(result -> result.getStatus() == VehicleBatchResultDTO.Status.CREATED)
+                .count());
+        assertEquals(fleet.size(), vehicleRepository.count());
+        log.info("{} single inserts: {} ms, {} batched inserts: {} ms",
+                firstHalf.size(), singleNanos / 1_000_000, secondHalf.size(), batchNanos / 1_000_000);
+    }
+
+    // Fills every garage to capacity, alternating garages so both halves touch all of them
+    private List<VehicleDTO> fleet() {
+        List<VehicleDTO> fleet = new ArrayList<>();
+        for (int i = 0; i < GARAGES * Garage.MAX_VEHICLES; i++) {
+            fleet.add(new VehicleDTO(null, "Renault", "Clio " + i, 2022, "Gasoline", garageIds.get(i % GARAGES)));
+        }
+        return fleet;
+    }
+}
@@ -0,0 +1,146 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.exception.GarageCapacityExceededException;
+import com.garagetest.messaging.VehiclePublisher;
+import com.garagetest.model.Garage;
+import com.garagetest.repository.GarageRepository;
+import com.garagetest.repository.VehicleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class VehicleCapacityConcurrencyTest {
+
+    private static final int WRITERS_PER_GARAGE = 120;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private GarageService garageService;
+
+    @Autowired
+    private GarageRepository garageRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @MockitoBean
+    private VehiclePublisher vehiclePublisher;
+
+    @AfterEach
+    void tearDown() {
+        garageRepository.deleteAll();
+    }
+
+    @Test
+    void createVehicle_ShouldNeverExceedCapacity_UnderConcurrentWriters() throws Exception {
+        // Arrange
+        Garage first = garageRepository.save(newGarage("First Garage"));
+        Garage second = garageRepository.save(newGarage("Second Garage"));
+
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS_PER_GARAGE * 2);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < WRITERS_PER_GARAGE * 2; i++) {
+            Long garageId = i % 2 == 0 ? first.getId() : second.getId();
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    vehicleService.createVehicle(newVehicle(garageId));
+                    admitted.incrementAndGet();
+                } catch (GarageCapacityExceededException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(Garage.MAX_VEHICLES * 2, admitted.get());
+        assertEquals((WRITERS_PER_GARAGE - Garage.MAX_VEHICLES) * 2, rejected.get());
+        assertEquals(Garage.MAX_VEHICLES, vehicleRepository.countByGarageId(first.getId()));
+        assertEquals(Garage.MAX_VEHICLES, vehicleRepository.countByGarageId(second.getId()));
+        assertEquals(Garage.MAX_VEHICLES, garageRepository.findById(first.getId()).orElseThrow().getVehicleCount());
+        assertEquals(Garage.MAX_VEHICLES, garageRepository.findById(second.getId()).orElseThrow().getVehicleCount());
+    }
+
+    @Test
+    void reconcileVehicleCounts_ShouldKeepIncrementsMadeWhileItRuns() throws Exception {
+        // Arrange
+        Garage garage = garageRepository.save(newGarage("Busy Garage"));
+        int writers = Garage.MAX_VEHICLES - 10;
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 5);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act: recounts race the writers, as on a startup that already takes requests
+        for (int i = 0; i < writers + 5; i++) {
+            boolean recount = i % 10 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (recount) {
+                    garageService.reconcileVehicleCounts();
+                } else {
+                    vehicleService.createVehicle(newVehicle(garage.getId()));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(vehicleRepository.countByGarageId(garage.getId()),
+                garageRepository.findById(garage.getId()).orElseThrow().getVehicleCount());
+    }
+
+    private Garage newGarage(String name) {
+        Garage garage = new Garage();
+        garage.setName(name);
+        garage.setAddress("1 Test Street, Test City");
+        garage.setTelephone("123-456-7890");
+        garage.setEmail("test@garage.com");
+        return garage;
+    }
+
+    private VehicleDTO newVehicle(Long garageId) {
+        VehicleDTO dto = new VehicleDTO();
+        dto.setBrand("Renault");
+        dto.setModel("Clio");
+        dto.setManufacturingYear(2022);
+        dto.setFuelType("Gasoline");
+        dto.setGarageId(garageId);
+        return dto;
+    }
+}
@@ -0,0 +1,138 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.messaging.VehicleEvent;
+import com.garagetest.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VehicleReadModelTest {
+
+    private VehicleRepository vehicleRepository;
+    private VehicleReadModel readModel;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository = mock(VehicleRepository.class);
+        readModel = new VehicleReadModel(vehicleRepository, true, 1);
+    }
+
+    @Test
+    void lookups_ShouldBeEmpty_UntilConsistencyCheckPasses() {
+        VehicleDTO corolla = vehicle(1L, "Toyota", "Corolla", "Petrol", 10L);
+        readModel.apply(VehicleEvent.vehicleCreated(corolla, 0L));
+
+        assertEquals(Optional.empty(), readModel.findByModel("Corolla"));
+
+        stored(Map.of(1L, 0L));
+        readModel.checkConsistency();
+
+        assertTrue(readModel.isConsistent());
+        assertEquals(Optional.of(List.of(corolla)), readModel.findByModel("corolla"));
+        assertEquals(Optional.of(Set.of(10L)), readModel.findGarageIdsByBrand("TOYOTA"));
+    }
+
+    @Test
+    void checkConsistency_ShouldOnlyLookUpVehiclesAppliedSinceTheLastCheck() {
+        readModel.apply(VehicleEvent.vehicleCreated(vehicle(1L, "Toyota", "Corolla", "Petrol", 10L), 0L));
+        readModel.apply(VehicleEvent.vehicleCreated(vehicle(2L, "Ford", "Focus", "Petrol", 10L), 0L));
+        stored(Map.of(1L, 0L, 2L, 0L));
+        readModel.checkConsistency();
+        verify(vehicleRepository).findVersionsByIdIn(List.of(1L, 2L));
+
+        readModel.apply(VehicleEvent.vehicleUpdated(vehicle(2L, "Ford", "Focus", "Diesel", 10L), 1L));
+        stored(Map.of(2L, 1L));
+        readModel.checkConsistency();
+
+        verify(vehicleRepository).findVersionsByIdIn(List.of(2L));
+        assertTrue(readModel.isConsistent());
+    }
+
+    @Test
+    void apply_ShouldReindexUpdatesAndDropDeletes() {
+        VehicleDTO corolla = vehicle(1L, "Toyota", "Corolla", "Petrol", 10L);
+        VehicleDTO moved = vehicle(1L, "Toyota", "Corolla", "Hybrid", 20L);
+        VehicleDTO golf = vehicle(2L, "Volkswagen", "Golf", "Diesel", 10L);
+        readModel.apply(VehicleEvent.vehicleCreated(corolla));
+        readModel.apply(VehicleEvent.vehicleCreated(golf));
+        readModel.apply(VehicleEvent.vehicleUpdated(moved));
+        readModel.apply(VehicleEvent.vehicleDeleted(golf));
+
+        assertTrue(readModel.verify(List.of(1L, 2L), Map.of(1L, 0L), 1));
+        assertEquals(Optional.of(List.of(moved)), readModel.findByGarageId(20L));
+        assertEquals(Optional.of(List.of()), readModel.findByGarageId(10L));
+        assertEquals(Optional.of(List.of()), readModel.findByFuelType("Petrol"));
+        assertEquals(Optional.of(Set.of()), readModel.findGarageIdsByBrand("Volkswagen"));
+    }
+
+    @Test
+    void verify_ShouldKeepServingReads_WhileEventsAreInFlight() {
+        VehicleDTO corolla = vehicle(1L, "Toyota", "Corolla", "Petrol", 10L);
+        readModel.apply(VehicleEvent.vehicleCreated(corolla, 0L));
+        assertTrue(readModel.verify(List.of(1L), Map.of(1L, 0L), 1));
+
+        // An update and a create committed, their events still on the way: within the tolerance of one
+        readModel.apply(VehicleEvent.vehicleUpdated(corolla, 1L));
+        assertTrue(readModel.verify(List.of(1L), Map.of(1L, 2L), 2));
+        assertEquals(Optional.of(List.of(corolla)), readModel.findByModel("Corolla"));
+
+        // The update arrives, then another one before the next check: still only lag
+        readModel.apply(VehicleEvent.vehicleUpdated(corolla, 2L));
+        assertTrue(readModel.verify(List.of(1L), Map.of(1L, 3L), 2));
+    }
+
+    @Test
+    void verify_ShouldStopServingReads_WhenAnEventDoesNotArriveByTheNextCheck() {
+        VehicleDTO corolla = vehicle(1L, "Toyota", "Corolla", "Petrol", 10L);
+        readModel.apply(VehicleEvent.vehicleCreated(corolla, 0L));
+        assertTrue(readModel.verify(List.of(1L), Map.of(1L, 0L), 1));
+
+        // The vehicle was deleted without its event reaching the view
+        assertTrue(readModel.verify(List.of(1L), Map.of(), 0));
+        assertFalse(readModel.verify(List.of(1L), Map.of(), 0));
+        assertEquals(Optional.empty(), readModel.findByModel("Corolla"));
+
+        // Once the event arrives, reads are served again
+        readModel.apply(VehicleEvent.vehicleDeleted(corolla, 1L));
+        assertTrue(readModel.verify(List.of(1L), Map.of(), 0));
+    }
+
+    @Test
+    void verify_ShouldStopServingReads_WhenTheViewTrailsByMoreThanTheTolerance() {
+        readModel.apply(VehicleEvent.vehicleCreated(vehicle(1L, "Toyota", "Corolla", "Petrol", 10L), 0L));
+
+        assertFalse(readModel.verify(List.of(1L), Map.of(1L, 0L), 3));
+        assertEquals(Optional.empty(), readModel.findByModel("Corolla"));
+    }
+
+    @Test
+    void lookups_ShouldBeEmpty_WhenDisabled() {
+        VehicleReadModel disabled = new VehicleReadModel(vehicleRepository, false, 100);
+        disabled.apply(VehicleEvent.vehicleCreated(vehicle(1L, "Toyota", "Corolla", "Petrol", 10L), 0L));
+        disabled.checkConsistency();
+
+        assertEquals(Optional.empty(), disabled.findByModel("Corolla"));
+        verifyNoInteractions(vehicleRepository);
+    }
+
+    private void stored(Map<Long, Long> versions) {
+        List<Object[]> rows = versions.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), entry.getValue()})
+                .toList();
+        when(vehicleRepository.findVersionsByIdIn(any())).thenReturn(rows);
+        when(vehicleRepository.count()).thenReturn((long) versions.size());
+    }
+
+    private static VehicleDTO vehicle(Long id, String brand, String model, String fuelType, Long garageId) {
+        return new VehicleDTO(id, brand, model, 2020, fuelType, garageId);
+    }
+}
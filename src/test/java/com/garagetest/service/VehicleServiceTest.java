@@ -1,25 +1,38 @@
 package com.garagetest.service;
 
+import com.garagetest.dto.VehicleBatchResultDTO;
 import com.garagetest.dto.VehicleDTO;
+import com.garagetest.exception.GarageCapacityExceededException;
+import com.garagetest.exception.InvalidRequestException;
 import com.garagetest.messaging.VehiclePublisher;
 import com.garagetest.model.Garage;
 import com.garagetest.model.Vehicle;
+import com.garagetest.repository.AccessoryRepository;
 import com.garagetest.repository.GarageRepository;
 import com.garagetest.repository.VehicleRepository;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,12 +41,27 @@ class VehicleServiceTest {
     @Mock
     private VehicleRepository vehicleRepository;
 
+    @Mock
+    private AccessoryRepository accessoryRepository;
+
     @Mock
     private GarageRepository garageRepository;
 
     @Mock
     private VehiclePublisher vehiclePublisher;
 
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private VehicleReadModel readModel;
+
+    @Mock
+    private EntityCacheEvictor cacheEvictor;
+
+    @Mock
+    private VehicleStatsRollup statsRollup;
+
     @InjectMocks
     private VehicleService vehicleService;
 
@@ -56,6 +84,7 @@ class VehicleServiceTest {
         vehicle.setManufacturingYear(2022);
         vehicle.setFuelType("Gasoline");
         vehicle.setGarage(garage);
+        vehicle.setVersion(0L);
 
         vehicleDTO = new VehicleDTO();
         vehicleDTO.setId(1L);
@@ -70,8 +99,9 @@ class VehicleServiceTest {
     void createVehicle_ShouldReturnCreatedVehicle_WhenGarageHasCapacity() {
         // Arrange
         when(garageRepository.findById(1L)).thenReturn(Optional.of(garage));
+        when(garageRepository.incrementVehicleCount(1L, Garage.MAX_VEHICLES)).thenReturn(1);
         when(vehicleRepository.save(any(Vehicle.class))).thenReturn(vehicle);
-        doNothing().when(vehiclePublisher).publishVehicleCreated(any(VehicleDTO.class));
+        doNothing().when(vehiclePublisher).publishVehicleCreated(any(VehicleDTO.class), anyLong());
 
         // Act
         VehicleDTO result = vehicleService.createVehicle(vehicleDTO);
@@ -81,8 +111,9 @@ class VehicleServiceTest {
         assertEquals(vehicleDTO.getId(), result.getId());
         assertEquals(vehicleDTO.getBrand(), result.getBrand());
         verify(garageRepository, times(1)).findById(1L);
+        verify(garageRepository, times(1)).incrementVehicleCount(1L, Garage.MAX_VEHICLES);
         verify(vehicleRepository, times(1)).save(any(Vehicle.class));
-        verify(vehiclePublisher, times(1)).publishVehicleCreated(any(VehicleDTO.class));
+        verify(vehiclePublisher, times(1)).publishVehicleCreated(any(VehicleDTO.class), anyLong());
     }
 
     @Test
@@ -95,7 +126,7 @@ class VehicleServiceTest {
         assertThrows(EntityNotFoundException.class, () -> vehicleService.createVehicle(vehicleDTO));
         verify(garageRepository, times(1)).findById(999L);
         verify(vehicleRepository, never()).save(any(Vehicle.class));
-        verify(vehiclePublisher, never()).publishVehicleCreated(any(VehicleDTO.class));
+        verify(vehiclePublisher, never()).publishVehicleCreated(any(VehicleDTO.class), anyLong());
     }
 
     @Test
@@ -114,13 +145,14 @@ class VehicleServiceTest {
         fullGarage.setVehicles(vehicles);
 
         when(garageRepository.findById(2L)).thenReturn(Optional.of(fullGarage));
+        when(garageRepository.incrementVehicleCount(2L, Garage.MAX_VEHICLES)).thenReturn(0);
         vehicleDTO.setGarageId(2L);
 
         // Act & Assert
-        assertThrows(IllegalStateException.class, () -> vehicleService.createVehicle(vehicleDTO));
+        assertThrows(GarageCapacityExceededException.class, () -> vehicleService.createVehicle(vehicleDTO));
         verify(garageRepository, times(1)).findById(2L);
         verify(vehicleRepository, never()).save(any(Vehicle.class));
-        verify(vehiclePublisher, never()).publishVehicleCreated(any(VehicleDTO.class));
+        verify(vehiclePublisher, never()).publishVehicleCreated(any(VehicleDTO.class), anyLong());
     }
 
     @Test
@@ -152,8 +184,8 @@ class VehicleServiceTest {
     void updateVehicle_ShouldReturnUpdatedVehicle_WhenVehicleExists() {
         // Arrange
         when(vehicleRepository.findById(1L)).thenReturn(Optional.of(vehicle));
-        when(vehicleRepository.save(any(Vehicle.class))).thenReturn(vehicle);
-        doNothing().when(vehiclePublisher).publishVehicleUpdated(any(VehicleDTO.class));
+        when(vehicleRepository.saveAndFlush(any(Vehicle.class))).thenReturn(vehicle);
+        doNothing().when(vehiclePublisher).publishVehicleUpdated(any(VehicleDTO.class), anyLong());
 
         // Update DTO
         vehicleDTO.setModel("Megane");
@@ -165,23 +197,207 @@ class VehicleServiceTest {
         assertNotNull(result);
         assertEquals(vehicleDTO.getModel(), result.getModel());
         verify(vehicleRepository, times(1)).findById(1L);
-        verify(vehicleRepository, times(1)).save(any(Vehicle.class));
-        verify(vehiclePublisher, times(1)).publishVehicleUpdated(any(VehicleDTO.class));
+        verify(vehicleRepository, times(1)).saveAndFlush(any(Vehicle.class));
+        verify(vehiclePublisher, times(1)).publishVehicleUpdated(any(VehicleDTO.class), anyLong());
     }
 
     @Test
     void deleteVehicle_ShouldDeleteVehicle_WhenVehicleExists() {
         // Arrange
         when(vehicleRepository.findById(1L)).thenReturn(Optional.of(vehicle));
-        doNothing().when(vehicleRepository).deleteById(1L);
-        doNothing().when(vehiclePublisher).publishVehicleDeleted(any(VehicleDTO.class));
+        doNothing().when(vehicleRepository).delete(vehicle);
+        doNothing().when(vehiclePublisher).publishVehicleDeleted(any(VehicleDTO.class), anyLong());
 
         // Act
         vehicleService.deleteVehicle(1L);
 
         // Assert
         verify(vehicleRepository, times(1)).findById(1L);
-        verify(vehicleRepository, times(1)).deleteById(1L);
-        verify(vehiclePublisher, times(1)).publishVehicleDeleted(any(VehicleDTO.class));
+        verify(vehicleRepository, times(1)).delete(vehicle);
+        verify(vehicleRepository, never()).deleteById(anyLong());
+        verify(garageRepository, times(1)).decrementVehicleCount(1L);
+        verify(vehiclePublisher, times(1)).publishVehicleDeleted(any(VehicleDTO.class), anyLong());
+    }
+
+    @Test
+    void deleteVehicles_ShouldBulkDeleteAndPublishEachVehicle_WithoutLoadingThem() {
+        // Arrange
+        VehicleDTO other = new VehicleDTO(2L, "Peugeot", "208", 2021, "Diesel", 2L, 3L);
+        vehicleDTO.setVersion(0L);
+        when(vehicleRepository.findVehicleDtosByIdInForUpdate(Set.of(1L, 2L))).thenReturn(List.of(vehicleDTO, other));
+        when(vehicleRepository.deleteByIdIn(Set.of(1L, 2L))).thenReturn(2);
+
+        // Act
+        vehicleService.deleteVehicles(List.of(2L, 1L, 2L));
+
+        // Assert
+        verify(garageRepository, times(1)).subtractVehicles(Set.of(1L, 2L));
+        verify(accessoryRepository, times(1)).deleteByVehicleIdIn(Set.of(1L, 2L));
+        verify(cacheEvictor, times(1)).evictAfterCommit(Garage.class, 1L);
+        verify(cacheEvictor, times(1)).evictAfterCommit(Garage.class, 2L);
+        verify(vehiclePublisher, times(1)).publishVehicleDeleted(vehicleDTO, 0L);
+        verify(vehiclePublisher, times(1)).publishVehicleDeleted(other, 3L);
+        verify(statsRollup, times(1)).recordAfterCommit(List.of(vehicleDTO, other), List.of());
+        verify(vehicleRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void deleteVehicles_ShouldDeleteNothing_WhenAnIdIsMissing() {
+        // Arrange
+        when(vehicleRepository.findVehicleDtosByIdInForUpdate(Set.of(1L, 999L))).thenReturn(List.of(vehicleDTO));
+
+        // Act & Assert
+        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
+                () -> vehicleService.deleteVehicles(List.of(1L, 999L)));
+        assertEquals("Vehicles not found with ids: [999]", exception.getMessage());
+        verify(vehicleRepository, never()).deleteByIdIn(any());
+        verify(vehiclePublisher, never()).publishVehicleDeleted(any(VehicleDTO.class), anyLong());
+    }
+
+    @Test
+    void createVehicles_ShouldRejectOversizedBatches_BeforeLockingAnything() {
+        // Arrange
+        List<VehicleDTO> batch = Collections.nCopies(VehicleService.MAX_BATCH + 1, vehicleDTO);
+
+        // Act & Assert
+        InvalidRequestException exception = assertThrows(InvalidRequestException.class,
+                () -> vehicleService.createVehicles(batch));
+        assertEquals("At most 500 vehicles can be created at once", exception.getMessage());
+        verifyNoInteractions(vehicleRepository, garageRepository, vehiclePublisher);
+    }
+
+    @Test
+    void deleteVehicles_ShouldRejectOversizedBatches_BeforeLockingAnything() {
+        // Arrange
+        List<Long> ids = LongStream.rangeClosed(1, VehicleService.MAX_BATCH + 1).boxed().toList();
+
+        // Act & Assert
+        InvalidRequestException exception = assertThrows(InvalidRequestException.class,
+                () -> vehicleService.deleteVehicles(ids));
+        assertEquals("At most 500 vehicles can be deleted at once", exception.getMessage());
+        verifyNoInteractions(vehicleRepository, garageRepository, accessoryRepository);
+    }
+
+    @Test
+    void deleteVehicles_ShouldFail_WhenAVehicleVanishesMidway() {
+        // Arrange
+        when(vehicleRepository.findVehicleDtosByIdInForUpdate(Set.of(1L))).thenReturn(List.of(vehicleDTO));
+        when(vehicleRepository.deleteByIdIn(Set.of(1L))).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> vehicleService.deleteVehicles(List.of(1L)));
+        verify(vehiclePublisher, never()).publishVehicleDeleted(any(VehicleDTO.class), anyLong());
+    }
+
+    @Test
+    void updateVehicle_ShouldMoveVehicleSlot_WhenGarageChanges() {
+        // Arrange
+        Garage otherGarage = new Garage();
+        otherGarage.setId(2L);
+        otherGarage.setName("Other Garage");
+
+        when(vehicleRepository.findById(1L)).thenReturn(Optional.of(vehicle));
+        when(garageRepository.findById(2L)).thenReturn(Optional.of(otherGarage));
+        when(garageRepository.incrementVehicleCount(2L, Garage.MAX_VEHICLES)).thenReturn(1);
+        when(vehicleRepository.saveAndFlush(any(Vehicle.class))).thenReturn(vehicle);
+        vehicleDTO.setGarageId(2L);
+
+        // Act
+        VehicleDTO result = vehicleService.updateVehicle(1L, vehicleDTO);
+
+        // Assert
+        assertEquals(2L, result.getGarageId());
+        // The flushed vehicle row is locked before either garage row
+        InOrder inOrder = inOrder(vehicleRepository, garageRepository);
+        inOrder.verify(vehicleRepository).saveAndFlush(vehicle);
+        inOrder.verify(garageRepository).incrementVehicleCount(2L, Garage.MAX_VEHICLES);
+        inOrder.verify(garageRepository).decrementVehicleCount(1L);
+        inOrder.verify(garageRepository).addVehicleAccessoryTotals(2L, 1L);
+        inOrder.verify(garageRepository).subtractVehicleAccessoryTotals(1L, 1L);
+    }
+
+    @Test
+    void updateVehicle_ShouldThrowException_WhenNewGarageIsAtCapacity() {
+        // Arrange
+        Garage fullGarage = new Garage();
+        fullGarage.setId(2L);
+
+        when(vehicleRepository.findById(1L)).thenReturn(Optional.of(vehicle));
+        when(garageRepository.findById(2L)).thenReturn(Optional.of(fullGarage));
+        when(garageRepository.incrementVehicleCount(2L, Garage.MAX_VEHICLES)).thenReturn(0);
+        when(vehicleRepository.saveAndFlush(any(Vehicle.class))).thenReturn(vehicle);
+        vehicleDTO.setGarageId(2L);
+
+        // Act & Assert
+        assertThrows(GarageCapacityExceededException.class, () -> vehicleService.updateVehicle(1L, vehicleDTO));
+        verify(garageRepository, never()).decrementVehicleCount(anyLong());
+        verify(garageRepository, never()).addVehicleAccessoryTotals(anyLong(), anyLong());
+        verify(vehiclePublisher, never()).publishVehicleUpdated(any(VehicleDTO.class), anyLong());
+    }
+
+    @Test
+    void createVehicles_ShouldAdmitUpToRemainingCapacity_AndRejectTheRest() {
+        // Arrange
+        garage.setVehicleCount(Garage.MAX_VEHICLES - 1);
+        when(garageRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(garage));
+        when(vehicleRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Vehicle> vehicles = invocation.getArgument(0);
+            vehicles.forEach(v -> {
+                v.setId(10L);
+                v.setVersion(0L);
+            });
+            return vehicles;
+        });
+
+        // Act
+        List<VehicleBatchResultDTO> results = vehicleService.createVehicles(List.of(vehicleDTO, vehicleDTO));
+
+        // Assert
+        assertEquals(2, results.size());
+        assertEquals(VehicleBatchResultDTO.Status.CREATED, results.get(0).getStatus());
+        assertEquals(10L, results.get(0).getVehicle().getId());
+        assertEquals(VehicleBatchResultDTO.Status.REJECTED, results.get(1).getStatus());
+        verify(garageRepository, times(1)).findByIdForUpdate(1L);
+        verify(garageRepository, times(1)).addVehicleCount(1L, 1);
+        verify(vehiclePublisher, times(1)).publishVehicleCreated(any(VehicleDTO.class), anyLong());
+    }
+
+    @Test
+    void createVehicles_ShouldRejectRows_WhenGarageDoesNotExist() {
+        // Arrange
+        when(garageRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
+        vehicleDTO.setGarageId(999L);
+        VehicleDTO missingGarage = new VehicleDTO(null, "Peugeot", "208", 2021, "Diesel", null);
+
+        // Act
+        List<VehicleBatchResultDTO> results = vehicleService.createVehicles(List.of(vehicleDTO, missingGarage));
+
+        // Assert
+        assertEquals(VehicleBatchResultDTO.Status.REJECTED, results.get(0).getStatus());
+        assertEquals("Garage not found with id: 999", results.get(0).getError());
+        assertEquals(VehicleBatchResultDTO.Status.REJECTED, results.get(1).getStatus());
+        assertEquals("Garage id is required", results.get(1).getError());
+        verify(garageRepository, never()).addVehicleCount(anyLong(), anyInt());
+        verify(vehiclePublisher, never()).publishVehicleCreated(any(VehicleDTO.class), anyLong());
+    }
+
+    @Test
+    void getVehiclesByModel_ShouldUseReadModel_WhenConsistent() {
+        when(readModel.findByModel("Corolla")).thenReturn(Optional.of(List.of(vehicleDTO)));
+
+        List<VehicleDTO> result = vehicleService.getVehiclesByModel("Corolla");
+
+        assertEquals(List.of(vehicleDTO), result);
+        verify(vehicleRepository, never()).findVehicleDtosByModel(any());
+    }
+
+    @Test
+    void getVehiclesByModel_ShouldQueryDatabase_WhenReadModelUnavailable() {
+        when(vehicleRepository.findVehicleDtosByModel("Corolla")).thenReturn(List.of(vehicleDTO));
+
+        List<VehicleDTO> result = vehicleService.getVehiclesByModel("Corolla");
+
+        assertEquals(1, result.size());
+        verify(vehicleRepository).findVehicleDtosByModel("Corolla");
     }
-}
\ No newline at end of file
+}
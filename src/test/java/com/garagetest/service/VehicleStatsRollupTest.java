@@ -0,0 +1,105 @@
+package com.garagetest.service;
+
+import com.garagetest.dto.StatsCountDTO;
+import com.garagetest.dto.VehicleDTO;
+import com.garagetest.repository.VehicleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VehicleStatsRollupTest {
+
+    private VehicleRepository vehicleRepository;
+    private VehicleStatsRollup rollup;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository = mock(VehicleRepository.class);
+        rollup = new VehicleStatsRollup(vehicleRepository, true);
+        when(vehicleRepository.countVehiclesByBrand()).thenReturn(List.of(new StatsCountDTO("renault", 2)));
+        when(vehicleRepository.countVehiclesByFuelType()).thenReturn(List.of(new StatsCountDTO("diesel", 2)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void recordAfterCommit_ShouldMoveCounts_AndDropEmptyGroups() {
+        rollup.rebuild();
+
+        rollup.recordAfterCommit(List.of(), List.of(vehicle("Peugeot", "Diesel")));
+        rollup.recordAfterCommit(List.of(vehicle("Renault", "Diesel")), List.of(vehicle("Peugeot", "Electric")));
+
+        assertEquals(Optional.of(List.of(new StatsCountDTO("peugeot", 2), new StatsCountDTO("renault", 1))),
+                rollup.countByBrand());
+        assertEquals(Optional.of(List.of(new StatsCountDTO("diesel", 2), new StatsCountDTO("electric", 1))),
+                rollup.countByFuelType());
+
+        rollup.recordAfterCommit(List.of(vehicle("Renault", "Electric")), List.of());
+
+        assertEquals(Optional.of(List.of(new StatsCountDTO("peugeot", 2))), rollup.countByBrand());
+        verify(vehicleRepository, times(1)).countVehiclesByBrand();
+    }
+
+    @Test
+    void recordAfterCommit_ShouldWaitForTheCommit_AndIgnoreRollbacks() {
+        rollup.rebuild();
+        TransactionSynchronizationManager.initSynchronization();
+
+        rollup.recordAfterCommit(List.of(), List.of(vehicle("Renault", "Diesel")));
+        rollup.recordAfterCommit(List.of(), List.of(vehicle("Renault", "Diesel")));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+        assertEquals(Optional.of(List.of(new StatsCountDTO("renault", 2))), rollup.countByBrand());
+
+        synchronizations.get(0).beforeCommit(false);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(Optional.of(List.of(new StatsCountDTO("renault", 3))), rollup.countByBrand());
+    }
+
+    @Test
+    void lookups_ShouldFallBack_WhileAWriteIsCommitting() {
+        TransactionSynchronizationManager.initSynchronization();
+        rollup.recordAfterCommit(List.of(), List.of(vehicle("Renault", "Diesel")));
+        TransactionSynchronization commit = TransactionSynchronizationManager.getSynchronizations().get(0);
+        commit.beforeCommit(false);
+
+        // The write may or may not be in the grouped query's result, so the reload is not kept
+        assertEquals(Optional.empty(), rollup.countByBrand());
+
+        commit.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(Optional.of(List.of(new StatsCountDTO("renault", 2))), rollup.countByBrand());
+    }
+
+    @Test
+    void rebuild_ShouldPickUpWritesMadeElsewhere() {
+        rollup.rebuild();
+        // Another instance adds a vehicle; this one never sees the write
+        when(vehicleRepository.countVehiclesByBrand())
+                .thenReturn(List.of(new StatsCountDTO("renault", 2), new StatsCountDTO("peugeot", 1)));
+
+        rollup.rebuild();
+
+        assertEquals(Optional.of(List.of(new StatsCountDTO("renault", 2), new StatsCountDTO("peugeot", 1))),
+                rollup.countByBrand());
+    }
+
+    private static VehicleDTO vehicle(String brand, String fuelType) {
+        return new VehicleDTO(null, brand, "Model", 2020, fuelType, 1L);
+    }
+}